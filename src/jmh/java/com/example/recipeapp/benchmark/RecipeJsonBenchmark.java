@@ -0,0 +1,60 @@
+package com.example.recipeapp.benchmark;
+
+import com.example.recipeapp.model.Recipe;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Recipe エンティティの Jackson シリアライズ（/api/search・/api/recipes/random の応答と同じ経路）。
+ * 1件あたりと、全件をまとめて書き出した場合を測る。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 3, time = 1)
+@Fork(value = 1, jvmArgs = {"-Xms2g", "-Xmx3g"})
+public class RecipeJsonBenchmark {
+
+    @Param({"1000", "10000", "100000", "1000000"})
+    public int recipeCount;
+
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+
+    private List<Recipe> recipes;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        recipes = SyntheticRecipes.create(recipeCount);
+    }
+
+    @Benchmark
+    public byte[] serializeOne() throws IOException {
+        next = next + 1 < recipes.size() ? next + 1 : 0;
+        return objectMapper.writeValueAsBytes(recipes.get(next));
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public long serializeAll() throws IOException {
+        SyntheticRecipes.CountingOutputStream out = new SyntheticRecipes.CountingOutputStream();
+        objectMapper.writeValue(out, recipes);
+        return out.getCount();
+    }
+}
@@ -0,0 +1,78 @@
+package com.example.recipeapp.benchmark;
+
+import com.example.recipeapp.model.Recipe;
+import com.example.recipeapp.service.CategoryIndex;
+
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * ベンチマーク用の合成レシピデータ。
+ * 同じ件数なら毎回同じ内容になるよう、乱数の種を固定して作る。
+ */
+public final class SyntheticRecipes {
+
+    private static final String[] DISHES = {
+            "カレー", "ハンバーグ", "唐揚げ", "オムライス", "肉じゃが", "麻婆豆腐", "パスタ", "グラタン",
+            "味噌汁", "サラダ", "炒飯", "餃子", "親子丼", "焼き魚", "シチュー", "プリン"
+    };
+    private static final String[] INGREDIENTS = {
+            "玉ねぎ", "にんじん", "じゃがいも", "鶏もも肉", "豚バラ肉", "牛ひき肉", "卵", "豆腐",
+            "キャベツ", "トマト", "しめじ", "ねぎ", "にんにく", "生姜", "鮭", "牛乳", "バター", "米"
+    };
+
+    private SyntheticRecipes() {
+    }
+
+    /**
+     * ID が 1 から count までのレシピを作る。カテゴリは標準カテゴリから0〜2個。
+     */
+    public static List<Recipe> create(int count) {
+        Random random = new Random(42);
+        List<String> categories = CategoryIndex.STANDARD_CATEGORIES;
+        List<Recipe> recipes = new ArrayList<>(count);
+        for (int i = 1; i <= count; i++) {
+            Recipe recipe = new Recipe();
+            recipe.setId((long) i);
+            recipe.setTitle(DISHES[random.nextInt(DISHES.length)] + " " + i);
+            recipe.setIngredients(INGREDIENTS[random.nextInt(INGREDIENTS.length)] + "\n"
+                    + INGREDIENTS[random.nextInt(INGREDIENTS.length)] + "\n"
+                    + INGREDIENTS[random.nextInt(INGREDIENTS.length)]);
+            recipe.setInstructions("材料を切る。\n火にかけて煮込む。");
+            recipe.setFavorite(random.nextInt(10) == 0);
+            Set<String> recipeCategories = new HashSet<>();
+            for (int c = random.nextInt(3); c > 0; c--) {
+                recipeCategories.add(categories.get(random.nextInt(categories.size())));
+            }
+            recipe.setCategories(recipeCategories);
+            recipes.add(recipe);
+        }
+        return recipes;
+    }
+
+    /**
+     * 書き込んだバイト数だけを数える出力先
+     */
+    public static final class CountingOutputStream extends OutputStream {
+
+        private long count;
+
+        @Override
+        public void write(int b) {
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            count += len;
+        }
+
+        public long getCount() {
+            return count;
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.recipeapp.controller;
+
+import com.example.recipeapp.benchmark.SyntheticRecipes;
+import com.example.recipeapp.service.CategoryIndex;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * RecipeController.validateCategories（登録・更新フォームのカテゴリ検証）。
+ * 索引には recipeCount 件のレシピを登録しておく。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 3, time = 1)
+@Fork(value = 1, jvmArgs = {"-Xms2g", "-Xmx3g"})
+public class CategoryValidationBenchmark {
+
+    @Param({"1000", "10000", "100000", "1000000"})
+    public int recipeCount;
+
+    private final RecipeController controller = new RecipeController();
+    private final List<String> valid = List.of("和食", "時短");
+    private final List<String> duplicated = List.of("和食", " 和食 ", "時短", "和食", "");
+    private final List<String> tooMany = List.of("和食", "時短", "ヘルシー", "朝食");
+
+    @Setup
+    public void setUp() {
+        CategoryIndex categoryIndex = new CategoryIndex();
+        SyntheticRecipes.create(recipeCount).forEach(categoryIndex::put);
+        ReflectionTestUtils.setField(controller, "categoryIndex", categoryIndex);
+    }
+
+    @Benchmark
+    public Object validCategories() {
+        return controller.validateCategories(valid);
+    }
+
+    @Benchmark
+    public Object duplicatedCategories() {
+        return controller.validateCategories(duplicated);
+    }
+
+    @Benchmark
+    public Object tooManyCategories() {
+        return controller.validateCategories(tooMany);
+    }
+}
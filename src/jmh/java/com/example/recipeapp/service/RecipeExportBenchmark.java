@@ -0,0 +1,56 @@
+package com.example.recipeapp.service;
+
+import com.example.recipeapp.benchmark.SyntheticRecipes;
+import com.example.recipeapp.model.Recipe;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * /api/export の書き出し（DB の読み出しを除いた、行の組み立てとエンコード）。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 3, time = 1)
+@Fork(value = 1, jvmArgs = {"-Xms2g", "-Xmx3g"})
+public class RecipeExportBenchmark {
+
+    @Param({"1000", "10000", "100000", "1000000"})
+    public int recipeCount;
+
+    @Param({"JSON", "NDJSON", "CSV"})
+    public RecipeExportService.Format format;
+
+    private final RecipeExportService exportService = new RecipeExportService();
+
+    private List<Recipe> recipes;
+
+    @Setup
+    public void setUp() {
+        ReflectionTestUtils.setField(exportService, "objectMapper", Jackson2ObjectMapperBuilder.json().build());
+        recipes = SyntheticRecipes.create(recipeCount);
+    }
+
+    @Benchmark
+    public long export() throws IOException {
+        SyntheticRecipes.CountingOutputStream out = new SyntheticRecipes.CountingOutputStream();
+        exportService.write(format, recipes.iterator(), out);
+        return out.getCount();
+    }
+}
@@ -0,0 +1,63 @@
+package com.example.recipeapp.service;
+
+import com.example.recipeapp.benchmark.SyntheticRecipes;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * /api/search の絞り込み（RecipeSearchIndex.search）。
+ * 1ページ目（50件）を、キーワード・材料・カテゴリ＋お気に入りの3種類の条件で測る。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 3, time = 1)
+@Fork(value = 1, jvmArgs = {"-Xms2g", "-Xmx3g"})
+public class RecipeSearchBenchmark {
+
+    private static final int PAGE_SIZE = 50;
+
+    @Param({"1000", "10000", "100000", "1000000"})
+    public int recipeCount;
+
+    private final RecipeSearchIndex index = new RecipeSearchIndex();
+
+    private final RecipeSearchIndex.SearchQuery keyword =
+            new RecipeSearchIndex.SearchQuery("カレー", null, null, null, null);
+    private final RecipeSearchIndex.SearchQuery ingredient =
+            new RecipeSearchIndex.SearchQuery(null, null, null, "玉ねぎ", null);
+    private final RecipeSearchIndex.SearchQuery favoriteCategory =
+            new RecipeSearchIndex.SearchQuery(null, null, "和食", null, true);
+
+    @Setup
+    public void setUp() {
+        SyntheticRecipes.create(recipeCount).forEach(index::index);
+    }
+
+    @Benchmark
+    public RecipeSearchIndex.SearchResult keyword() {
+        return index.search(keyword, 0, PAGE_SIZE);
+    }
+
+    @Benchmark
+    public RecipeSearchIndex.SearchResult ingredient() {
+        return index.search(ingredient, 0, PAGE_SIZE);
+    }
+
+    @Benchmark
+    public RecipeSearchIndex.SearchResult favoriteCategory() {
+        return index.search(favoriteCategory, 0, PAGE_SIZE);
+    }
+}
@@ -0,0 +1,63 @@
+package com.example.recipeapp.service;
+
+import com.example.recipeapp.benchmark.SyntheticRecipes;
+import com.example.recipeapp.model.Recipe;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * /api/stats・/api/categories の集計（RecipeStatsService）と、保存時の集計の更新。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 3, time = 1)
+@Fork(value = 1, jvmArgs = {"-Xms2g", "-Xmx3g"})
+public class RecipeStatsBenchmark {
+
+    @Param({"1000", "10000", "100000", "1000000"})
+    public int recipeCount;
+
+    private final RecipeStatsService statsService = new RecipeStatsService();
+
+    private List<Recipe> recipes;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        recipes = SyntheticRecipes.create(recipeCount);
+        recipes.forEach(statsService::put);
+    }
+
+    @Benchmark
+    public RecipeStatsService.Stats stats() {
+        return statsService.getStats();
+    }
+
+    @Benchmark
+    public List<Map.Entry<String, Long>> categoriesByCount() {
+        return statsService.getCategoriesByCount();
+    }
+
+    // 既存レシピの再保存（SAVED イベント）1件分
+    @Benchmark
+    public long update() {
+        next = next + 1 < recipes.size() ? next + 1 : 0;
+        statsService.put(recipes.get(next));
+        return statsService.getTotalCount();
+    }
+}
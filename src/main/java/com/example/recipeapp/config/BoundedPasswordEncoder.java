@@ -0,0 +1,114 @@
+package com.example.recipeapp.config;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.security.authentication.AuthenticationServiceException;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.time.Duration;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * パスワードのハッシュ計算・照合を専用の固定サイズのスレッドプールで行う PasswordEncoder。
+ * BCrypt は1回あたり数十ミリ秒 CPU を使うため、ログインが集中しても
+ * ハッシュ計算に使う CPU をスレッド数までに抑え、待ち行列が一杯なら待たせずに失敗させる。
+ * 呼び出し元のリクエストスレッドは結果を待つが、CPU は消費しない。
+ * プールの状態は MeterBinder としてメトリクス（recipeapp.password.hashing.*）にも公開する。
+ */
+public class BoundedPasswordEncoder implements PasswordEncoder, MeterBinder {
+
+    private final PasswordEncoder delegate;
+    private final ThreadPoolExecutor executor;
+    private final long timeoutMillis;
+
+    private final AtomicLong rejectedCount = new AtomicLong();
+    private final AtomicLong timeoutCount = new AtomicLong();
+
+    public BoundedPasswordEncoder(PasswordEncoder delegate, int threads, int queueCapacity, Duration timeout) {
+        this.delegate = delegate;
+        this.timeoutMillis = timeout.toMillis();
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "password-hash-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        return run(() -> delegate.encode(rawPassword));
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        return run(() -> delegate.matches(rawPassword, encodedPassword));
+    }
+
+    // コスト（強度）が変わったかの判定はハッシュ計算をしないので呼び出し元で行う
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        return delegate.upgradeEncoding(encodedPassword);
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("recipeapp.password.hashing.active", executor, ThreadPoolExecutor::getActiveCount)
+                .description("ハッシュ計算中のスレッド数")
+                .register(registry);
+        Gauge.builder("recipeapp.password.hashing.queued", executor, pool -> pool.getQueue().size())
+                .description("ハッシュ計算の待ち行列の長さ")
+                .register(registry);
+        FunctionCounter.builder("recipeapp.password.hashing.completed", executor, ThreadPoolExecutor::getCompletedTaskCount)
+                .register(registry);
+        FunctionCounter.builder("recipeapp.password.hashing.rejected", rejectedCount, AtomicLong::get)
+                .description("待ち行列が一杯で拒否した数")
+                .register(registry);
+        FunctionCounter.builder("recipeapp.password.hashing.timeouts", timeoutCount, AtomicLong::get)
+                .register(registry);
+    }
+
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private <T> T run(Callable<T> task) {
+        Future<T> future;
+        try {
+            future = executor.submit(task);
+        } catch (RejectedExecutionException e) {
+            rejectedCount.incrementAndGet();
+            throw new AuthenticationServiceException("ログインが混み合っています。しばらくしてから再度お試しください。");
+        }
+        try {
+            return future.get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            timeoutCount.incrementAndGet();
+            throw new AuthenticationServiceException("パスワードの確認がタイムアウトしました。");
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new AuthenticationServiceException("パスワードの確認が中断されました。", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+}
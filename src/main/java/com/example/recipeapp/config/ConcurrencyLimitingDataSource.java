@@ -0,0 +1,115 @@
+package com.example.recipeapp.config;
+
+import org.springframework.jdbc.CannotGetJdbcConnectionException;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 同時に JDBC 接続を使うスレッド数をセマフォで制限する DataSource。
+ * 仮想スレッドではリクエストごとにスレッドが作られるため、接続待ちの仮想スレッドが
+ * プール内部で大量に待機したり、ドライバーの synchronized ブロック内でキャリアスレッドを
+ * 占有（ピン留め）したりしないよう、接続を取る前にここで待たせる。
+ * 許可は接続の close() で返す。
+ * close() は包んでいる DataSource（接続プール）に渡すので、Bean の破棄時にプールも閉じられる。
+ */
+public class ConcurrencyLimitingDataSource extends DelegatingDataSource implements Closeable {
+
+    private final Semaphore permits;
+    private final long acquireTimeoutMillis;
+
+    public ConcurrencyLimitingDataSource(DataSource target, int maxConcurrency, Duration acquireTimeout) {
+        super(target);
+        this.permits = new Semaphore(maxConcurrency, true);
+        this.acquireTimeoutMillis = acquireTimeout.toMillis();
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        acquire();
+        try {
+            return releasingOnClose(super.getConnection());
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        acquire();
+        try {
+            return releasingOnClose(super.getConnection(username, password));
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    public int getAvailablePermits() {
+        return permits.availablePermits();
+    }
+
+    public int getQueueLength() {
+        return permits.getQueueLength();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (getTargetDataSource() instanceof Closeable closeable) {
+            closeable.close();
+        }
+    }
+
+    private void acquire() throws SQLException {
+        try {
+            if (!permits.tryAcquire(acquireTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                throw new CannotGetJdbcConnectionException("JDBC 接続の待ち時間が上限を超えました（待機中: "
+                        + permits.getQueueLength() + "）");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("JDBC 接続の待機が中断されました", e);
+        }
+    }
+
+    // close() が何度呼ばれても許可は一度だけ返す
+    private Connection releasingOnClose(Connection connection) {
+        AtomicBoolean released = new AtomicBoolean();
+        InvocationHandler handler = (proxy, method, args) -> {
+            if (method.getName().equals("close") && method.getParameterCount() == 0) {
+                try {
+                    connection.close();
+                } finally {
+                    if (released.compareAndSet(false, true)) {
+                        permits.release();
+                    }
+                }
+                return null;
+            }
+            if (method.getName().equals("unwrap") || method.getName().equals("isWrapperFor")) {
+                if (args[0] instanceof Class<?> type && type.isInstance(proxy) && type != Connection.class) {
+                    return method.getName().equals("unwrap") ? proxy : true;
+                }
+            }
+            try {
+                return method.invoke(connection, args);
+            } catch (InvocationTargetException e) {
+                throw e.getTargetException();
+            }
+        };
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                new Class<?>[]{Connection.class}, handler);
+    }
+}
@@ -17,10 +17,14 @@ public class MultipartConfig {
 
     /**
      * マルチパートリゾルバーのカスタム設定
+     * 本文の解析はパラメーターやファイルに初めてアクセスしたときまで遅らせる
+     * （このBeanがあると spring.servlet.multipart.resolve-lazily は使われないためここで設定する）。
      */
     @Bean
     public MultipartResolver multipartResolver() {
-        return new StandardServletMultipartResolver();
+        StandardServletMultipartResolver resolver = new StandardServletMultipartResolver();
+        resolver.setResolveLazily(true);
+        return resolver;
     }
 
     /**
@@ -36,8 +40,9 @@ public class MultipartConfig {
         // リクエスト全体のサイズ制限
         factory.setMaxRequestSize(DataSize.ofMegabytes(20));
 
-        // ファイルがメモリに書き込まれる閾値
-        factory.setFileSizeThreshold(DataSize.ofKilobytes(0));
+        // この大きさまではメモリに保持し、一時ファイルに書き出さない
+        // （大きな画像はフォームの JavaScript が /api/uploads へ直接ストリーミングする）
+        factory.setFileSizeThreshold(DataSize.ofKilobytes(256));
 
         // 一時ディレクトリ
         factory.setLocation(System.getProperty("java.io.tmpdir"));
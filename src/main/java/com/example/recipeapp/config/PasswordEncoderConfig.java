@@ -1,15 +1,26 @@
 package com.example.recipeapp.config;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
-import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.time.Duration;
 
 @Configuration
 public class PasswordEncoderConfig {
 
+    /**
+     * BCrypt の計算は専用プールで行う（スレッド数未指定時は CPU コア数の半分）。
+     * strength を上げると、低いコストで保存済みのハッシュは次回ログイン時に再ハッシュされる。
+     */
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public BoundedPasswordEncoder passwordEncoder(
+            @Value("${recipeapp.security.bcrypt-strength:10}") int strength,
+            @Value("${recipeapp.security.hashing-threads:0}") int threads,
+            @Value("${recipeapp.security.hashing-queue-capacity:100}") int queueCapacity,
+            @Value("${recipeapp.security.hashing-timeout:5s}") Duration timeout) {
+        int poolSize = threads > 0 ? threads : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        return new BoundedPasswordEncoder(new BCryptPasswordEncoder(strength), poolSize, queueCapacity, timeout);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,133 @@
+package com.example.recipeapp.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceException;
+import org.hibernate.CacheMode;
+import org.hibernate.Session;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.orm.jpa.vendor.HibernateJpaDialect;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionException;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.time.Duration;
+
+/**
+ * 読み取り用 DataSource（レプリカ）の設定。recipeapp.datasource.read.url を設定したときだけ有効になる。
+ * 主 DB（spring.datasource.*）と読み取り用（recipeapp.datasource.read.*）の2つの Hikari プールを作り、
+ * ReadWriteRoutingDataSource で @Transactional(readOnly = true) の処理を読み取り用へ振り分ける。
+ * 読み取り用プールの設定は spring.datasource.hikari.* を引き継ぎ、recipeapp.datasource.read.hikari.* で上書きできる。
+ * 仮想スレッドモードでは JDBC の同時実行数をプールごとに、それぞれの最大サイズまでに制限する。
+ * 読み取り用 DB は主 DB より遅れていることがあるので、そこから読んだ内容は二次キャッシュ（全ユーザーで共有）に載せない。
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "recipeapp.datasource.read", name = "url")
+public class ReadReplicaConfig {
+
+    private static final Logger log = LoggerFactory.getLogger(ReadReplicaConfig.class);
+
+    // プールのメトリクス（hikaricp.*）の pool タグ
+    private static final String PRIMARY_POOL = "primary";
+    private static final String READ_POOL = "read";
+
+    @Bean
+    public ReadWriteRoutingDataSource dataSource(
+            DataSourceProperties primaryProperties,
+            Environment environment,
+            ObjectProvider<MeterRegistry> meterRegistry,
+            @Value("${recipeapp.datasource.read-your-writes-window:5s}") Duration readYourWritesWindow,
+            @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+        Binder binder = Binder.get(environment);
+
+        HikariDataSource primary = primaryProperties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        binder.bind("spring.datasource.hikari", Bindable.ofInstance(primary));
+        primary.setPoolName(PRIMARY_POOL);
+
+        DataSourceProperties readProperties = binder.bind("recipeapp.datasource.read", DataSourceProperties.class)
+                .orElseThrow(() -> new IllegalStateException("recipeapp.datasource.read.url が設定されていません"));
+        if (readProperties.getDriverClassName() == null) {
+            readProperties.setDriverClassName(primaryProperties.getDriverClassName());
+        }
+        HikariDataSource read = readProperties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        binder.bind("spring.datasource.hikari", Bindable.ofInstance(read));
+        binder.bind("recipeapp.datasource.read.hikari", Bindable.ofInstance(read));
+        read.setPoolName(READ_POOL);
+
+        meterRegistry.ifAvailable(registry -> {
+            primary.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(registry));
+            read.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(registry));
+        });
+
+        log.info("読み取り専用トランザクションを読み取り用 DB（{}）に振り分けます（書き込み後 {}ms は主 DB）",
+                read.getJdbcUrl(), readYourWritesWindow.toMillis());
+        return new ReadWriteRoutingDataSource(
+                limitConcurrency(primary, virtualThreads), limitConcurrency(read, virtualThreads), readYourWritesWindow);
+    }
+
+    /**
+     * JpaTransactionManager の JpaDialect を、読み取り用 DB へ振り分けるトランザクションでは
+     * 二次キャッシュを読むだけ（CacheMode.GET）にするものに差し替える。
+     * JpaTransactionManager は初期化時に EntityManagerFactory の JpaDialect を設定するので、初期化後に差し替える。
+     */
+    @Bean
+    public static BeanPostProcessor replicaReadCacheModePostProcessor(ObjectProvider<ReadWriteRoutingDataSource> dataSource) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof JpaTransactionManager transactionManager) {
+                    transactionManager.setJpaDialect(new ReplicaReadJpaDialect(dataSource));
+                }
+                return bean;
+            }
+        };
+    }
+
+    /**
+     * 遅れている行が二次キャッシュに入ると、追い出されるまで（TTL の間）全ユーザーにその内容が返るため、
+     * 読み取り用 DB から読むトランザクションではキャッシュからの読み取りだけを行い、書き込まない。
+     * open-in-view は無効なので、EntityManager はトランザクションごとに作られ、設定は元に戻さなくてよい。
+     */
+    private static final class ReplicaReadJpaDialect extends HibernateJpaDialect {
+
+        private final ObjectProvider<ReadWriteRoutingDataSource> dataSource;
+
+        ReplicaReadJpaDialect(ObjectProvider<ReadWriteRoutingDataSource> dataSource) {
+            this.dataSource = dataSource;
+        }
+
+        @Override
+        public Object beginTransaction(EntityManager entityManager, TransactionDefinition definition)
+                throws PersistenceException, SQLException, TransactionException {
+            Object transactionData = super.beginTransaction(entityManager, definition);
+            if (definition.isReadOnly() && dataSource.getObject().routesReadsToReplica()) {
+                entityManager.unwrap(Session.class).setCacheMode(CacheMode.GET);
+            }
+            return transactionData;
+        }
+    }
+
+    // 1つのセマフォで両方のプールを制限すると、合計が主 DB のプールの大きさで頭打ちになる
+    private static DataSource limitConcurrency(HikariDataSource pool, boolean virtualThreads) {
+        if (!virtualThreads) {
+            return pool;
+        }
+        log.info("仮想スレッドモード: {} プールの JDBC 同時実行数を {} に制限します", pool.getPoolName(), pool.getMaximumPoolSize());
+        return new ConcurrencyLimitingDataSource(pool, pool.getMaximumPoolSize(), Duration.ofMillis(pool.getConnectionTimeout()));
+    }
+}
@@ -0,0 +1,168 @@
+package com.example.recipeapp.config;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * 読み取り専用トランザクションを読み取り用のプール（レプリカ）へ、それ以外を主 DB へ振り分ける DataSource。
+ * 実際の接続は最初の SQL の直前まで遅らせ、トランザクションマネージャーが接続に設定した readOnly で
+ * 振り分ける（LazyConnectionDataSourceProxy の読み取り用 DataSource）。
+ * 書き込みトランザクションをコミットしたユーザーは、レプリカの遅延で自分の変更が見えなくならないよう
+ * readYourWritesWindow の間、読み取りも主 DB で行う（記録はこのインスタンスのメモリ上だけ）。
+ */
+public final class ReadWriteRoutingDataSource extends LazyConnectionDataSourceProxy implements Closeable {
+
+    enum Route {
+        PRIMARY, READ
+    }
+
+    private final DataSource primary;
+    private final DataSource read;
+    // 直近に書き込んだユーザー名（値は使わない）
+    private final Cache<String, Boolean> recentWriters;
+
+    public ReadWriteRoutingDataSource(DataSource primary, DataSource read, Duration readYourWritesWindow) {
+        this(primary, read, Caffeine.newBuilder()
+                .expireAfterWrite(readYourWritesWindow)
+                .maximumSize(100_000)
+                .<String, Boolean>build());
+    }
+
+    private ReadWriteRoutingDataSource(DataSource primary, DataSource read, Cache<String, Boolean> recentWriters) {
+        super(new WriterRecordingDataSource(primary, recentWriters));
+        this.primary = primary;
+        this.read = read;
+        this.recentWriters = recentWriters;
+        setReadOnlyDataSource(new ReadRouter(primary, read, recentWriters));
+    }
+
+    public DataSource getPrimaryDataSource() {
+        return primary;
+    }
+
+    public DataSource getReadDataSource() {
+        return read;
+    }
+
+    /**
+     * 今のスレッドの読み取り専用トランザクションが読み取り用のプールへ振り分けられるか
+     * （直近に書き込んだユーザーなら主 DB）。
+     */
+    public boolean routesReadsToReplica() {
+        return readRoute(recentWriters) == Route.READ;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            closeIfPossible(read);
+        } finally {
+            closeIfPossible(primary);
+        }
+    }
+
+    private static void closeIfPossible(DataSource dataSource) throws IOException {
+        if (dataSource instanceof Closeable closeable) {
+            closeable.close();
+        }
+    }
+
+    private static Route readRoute(Cache<String, Boolean> recentWriters) {
+        String user = currentUser();
+        if (user != null && recentWriters.getIfPresent(user) != null) {
+            return Route.PRIMARY;
+        }
+        return Route.READ;
+    }
+
+    private static String currentUser() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null || !authentication.isAuthenticated()
+                || authentication instanceof AnonymousAuthenticationToken) {
+            return null;
+        }
+        return authentication.getName();
+    }
+
+    /**
+     * 読み取り専用の接続の振り分け先（直近に書き込んだユーザーは主 DB、それ以外は読み取り用のプール）。
+     */
+    private static final class ReadRouter extends AbstractRoutingDataSource {
+
+        private final Cache<String, Boolean> recentWriters;
+
+        ReadRouter(DataSource primary, DataSource read, Cache<String, Boolean> recentWriters) {
+            this.recentWriters = recentWriters;
+            setTargetDataSources(Map.of(Route.PRIMARY, primary, Route.READ, read));
+            setDefaultTargetDataSource(read);
+            afterPropertiesSet();
+        }
+
+        @Override
+        protected Object determineCurrentLookupKey() {
+            return readRoute(recentWriters);
+        }
+    }
+
+    /**
+     * 主 DB の接続を書き込みトランザクションで取ったユーザーを、コミットした時点から記録する。
+     */
+    private static final class WriterRecordingDataSource extends DelegatingDataSource {
+
+        private final Cache<String, Boolean> recentWriters;
+
+        WriterRecordingDataSource(DataSource primary, Cache<String, Boolean> recentWriters) {
+            super(primary);
+            this.recentWriters = recentWriters;
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            rememberWriter();
+            return super.getConnection();
+        }
+
+        @Override
+        public Connection getConnection(String username, String password) throws SQLException {
+            rememberWriter();
+            return super.getConnection(username, password);
+        }
+
+        private void rememberWriter() {
+            if (!TransactionSynchronizationManager.isActualTransactionActive()
+                    || TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+                return;
+            }
+            String user = currentUser();
+            if (user == null) {
+                return;
+            }
+            if (TransactionSynchronizationManager.isSynchronizationActive()) {
+                TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                    @Override
+                    public void afterCommit() {
+                        recentWriters.put(user, Boolean.TRUE);
+                    }
+                });
+            } else {
+                recentWriters.put(user, Boolean.TRUE);
+            }
+        }
+    }
+}
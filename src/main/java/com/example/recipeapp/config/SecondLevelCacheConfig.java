@@ -0,0 +1,70 @@
+package com.example.recipeapp.config;
+
+import com.example.recipeapp.model.Recipe;
+import com.example.recipeapp.repository.RecipeRepository;
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.cache.CacheManager;
+import java.time.Duration;
+import java.util.OptionalLong;
+
+/**
+ * Hibernate 二次キャッシュ（JCache + Caffeine）の設定
+ */
+@Configuration
+public class SecondLevelCacheConfig {
+
+    // Hibernate のキャッシュリージョン名
+    private static final String RECIPE_REGION = Recipe.class.getName();
+    private static final String CATEGORIES_REGION = Recipe.class.getName() + ".categories";
+    private static final String QUERY_RESULTS_REGION = "default-query-results-region";
+    private static final String UPDATE_TIMESTAMPS_REGION = "default-update-timestamps-region";
+
+    /**
+     * リージョンごとに件数上限と TTL を設定したキャッシュマネージャー
+     */
+    @Bean(destroyMethod = "close")
+    public CacheManager hibernateCacheManager(
+            @Value("${recipeapp.cache.recipe.max-entries:10000}") long recipeMaxEntries,
+            @Value("${recipeapp.cache.recipe.ttl:30m}") Duration recipeTtl,
+            @Value("${recipeapp.cache.query.max-entries:1000}") long queryMaxEntries,
+            @Value("${recipeapp.cache.query.ttl:10m}") Duration queryTtl) {
+        // アプリケーションコンテキストごとに専用のマネージャーを作る（Caching の共有マネージャーは使わない）
+        CaffeineCachingProvider provider = new CaffeineCachingProvider();
+        CacheManager cacheManager = provider.getCacheManager(provider.getDefaultURI(), getClass().getClassLoader());
+
+        cacheManager.createCache(RECIPE_REGION, boundedRegion(recipeMaxEntries, recipeTtl));
+        cacheManager.createCache(CATEGORIES_REGION, boundedRegion(recipeMaxEntries, recipeTtl));
+        cacheManager.createCache(QUERY_RESULTS_REGION, boundedRegion(queryMaxEntries, queryTtl));
+        cacheManager.createCache(RecipeRepository.FAVORITES_QUERY_REGION, boundedRegion(queryMaxEntries, queryTtl));
+
+        // 更新タイムスタンプはクエリ結果の有効性判定に使うため、期限切れや追い出しをさせない
+        CaffeineConfiguration<Object, Object> timestamps = new CaffeineConfiguration<>();
+        timestamps.setStatisticsEnabled(true);
+        cacheManager.createCache(UPDATE_TIMESTAMPS_REGION, timestamps);
+        return cacheManager;
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer secondLevelCacheCustomizer(CacheManager hibernateCacheManager) {
+        return properties -> {
+            properties.put(ConfigSettings.CACHE_MANAGER, hibernateCacheManager);
+            // 上で作っていないリージョンが要求されたら設定ミスとして起動を止める
+            properties.put(ConfigSettings.MISSING_CACHE_STRATEGY, "fail");
+        };
+    }
+
+    private static CaffeineConfiguration<Object, Object> boundedRegion(long maxEntries, Duration ttl) {
+        CaffeineConfiguration<Object, Object> configuration = new CaffeineConfiguration<>();
+        configuration.setMaximumSize(OptionalLong.of(maxEntries));
+        configuration.setExpireAfterWrite(OptionalLong.of(ttl.toNanos()));
+        configuration.setStatisticsEnabled(true);
+        return configuration;
+    }
+}
@@ -2,14 +2,26 @@ package com.example.recipeapp.config;
 
 import com.example.recipeapp.service.CustomUserDetailsService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.autoconfigure.security.servlet.EndpointRequest;
+import org.springframework.boot.actuate.health.HealthEndpoint;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.authentication.AuthenticationServiceException;
 import org.springframework.security.config.annotation.authentication.builders.AuthenticationManagerBuilder;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
+import org.springframework.security.config.http.SessionCreationPolicy;
 import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.web.AuthenticationEntryPoint;
 import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.security.web.authentication.AuthenticationFailureHandler;
+import org.springframework.security.web.authentication.ExceptionMappingAuthenticationFailureHandler;
 import org.springframework.security.web.csrf.CookieCsrfTokenRepository;
 
+import java.util.Map;
+
 @Configuration
 public class SecurityConfig {
 
@@ -19,7 +31,35 @@ public class SecurityConfig {
     @Autowired
     private PasswordEncoder passwordEncoder;
 
+    /**
+     * Actuator は Prometheus などから取得できるよう HTTP Basic 認証にする。health 以外は管理者のみ。
+     */
     @Bean
+    @Order(1)
+    public SecurityFilterChain actuatorFilterChain(HttpSecurity http) throws Exception {
+        http
+                .securityMatcher(EndpointRequest.toAnyEndpoint())
+                .authorizeHttpRequests(auth -> auth
+                        .requestMatchers(EndpointRequest.to(HealthEndpoint.class)).permitAll()
+                        .anyRequest().hasRole("ADMIN")
+                )
+                .httpBasic(basic -> basic.authenticationEntryPoint(actuatorEntryPoint()))
+                .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
+                .csrf(csrf -> csrf.disable());
+
+        return http.build();
+    }
+
+    // sendError を使うとエラーページの転送でログイン画面へのリダイレクトになるため、401 をそのまま返す
+    private AuthenticationEntryPoint actuatorEntryPoint() {
+        return (request, response, authException) -> {
+            response.setHeader(HttpHeaders.WWW_AUTHENTICATE, "Basic realm=\"actuator\"");
+            response.setStatus(HttpStatus.UNAUTHORIZED.value());
+        };
+    }
+
+    @Bean
+    @Order(2)
     public SecurityFilterChain filterChain(HttpSecurity http) throws Exception {
         http
                 .authorizeHttpRequests(auth -> auth
@@ -29,7 +69,7 @@ public class SecurityConfig {
                 .formLogin(form -> form
                         .loginPage("/login")
                         .defaultSuccessUrl("/home", true)
-                        .failureUrl("/login?error=true")
+                        .failureHandler(loginFailureHandler())
                         .permitAll()
                 )
                 .logout(logout -> logout
@@ -48,8 +88,21 @@ public class SecurityConfig {
         return http.build();
     }
 
+    // パスワード計算プールが混雑して拒否されたときは、認証失敗とは別のメッセージを出す
+    private AuthenticationFailureHandler loginFailureHandler() {
+        ExceptionMappingAuthenticationFailureHandler handler = new ExceptionMappingAuthenticationFailureHandler();
+        handler.setDefaultFailureUrl("/login?error=true");
+        handler.setExceptionMappings(Map.of(
+                AuthenticationServiceException.class.getName(), "/login?busy=true"
+        ));
+        return handler;
+    }
+
     @Autowired
     public void configureGlobal(AuthenticationManagerBuilder auth) throws Exception {
-        auth.userDetailsService(customUserDetailsService).passwordEncoder(passwordEncoder);
+        // コストが変わったハッシュはログイン成功時に customUserDetailsService で再ハッシュして保存する
+        auth.userDetailsService(customUserDetailsService)
+                .passwordEncoder(passwordEncoder)
+                .userDetailsPasswordManager(customUserDetailsService);
     }
 }
\ No newline at end of file
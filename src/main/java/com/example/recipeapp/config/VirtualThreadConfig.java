@@ -0,0 +1,82 @@
+package com.example.recipeapp.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+
+/**
+ * 仮想スレッドモード（spring.threads.virtual.enabled=true）用の設定。
+ * Tomcat のリクエスト処理・非同期処理の実行は Spring Boot が仮想スレッドに切り替えるので、
+ * ここでは JDBC の同時実行数をセマフォで接続プールの大きさまでに抑える
+ * （読み取り用 DB を設定したときは ReadReplicaConfig がプールごとに抑える）。
+ * MySQL Connector/J 8.4 は I/O 中に synchronized を使うため、仮想スレッドがキャリアスレッドを
+ * 占有したまま DB を待つことになり、上限がないと DB を待つリクエストがキャリアを使い切ってしまう。
+ */
+@Configuration
+@ConditionalOnThreading(Threading.VIRTUAL)
+public class VirtualThreadConfig {
+
+    private static final Logger log = LoggerFactory.getLogger(VirtualThreadConfig.class);
+
+    @Bean
+    public static BeanPostProcessor concurrencyLimitingDataSourcePostProcessor(Environment environment) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (!(bean instanceof DataSource dataSource) || bean instanceof ConcurrencyLimitingDataSource
+                        || bean instanceof ReadWriteRoutingDataSource) {
+                    return bean;
+                }
+                // 0 なら接続プールの最大サイズに合わせる
+                int permits = environment.getProperty("recipeapp.virtual-threads.jdbc-permits", Integer.class, 0);
+                if (permits <= 0) {
+                    permits = environment.getProperty("spring.datasource.hikari.maximum-pool-size", Integer.class, 10);
+                }
+                Duration timeout = Duration.ofMillis(environment.getProperty(
+                        "spring.datasource.hikari.connection-timeout", Long.class, 30000L));
+                log.info("仮想スレッドモード: JDBC の同時実行数を {} に制限します", permits);
+                return new ConcurrencyLimitingDataSource(dataSource, permits, timeout);
+            }
+        };
+    }
+
+    /**
+     * JDBC の空き許可数と待機中のスレッド数（読み取り用 DB があればプールごとに pool タグで分ける）
+     */
+    @Bean
+    public MeterBinder jdbcPermitMetrics(DataSource dataSource) {
+        return registry -> {
+            if (dataSource instanceof ConcurrencyLimitingDataSource limited) {
+                registerPermitGauges(registry, limited, Tags.empty());
+            } else if (dataSource instanceof ReadWriteRoutingDataSource routing) {
+                if (routing.getPrimaryDataSource() instanceof ConcurrencyLimitingDataSource primary) {
+                    registerPermitGauges(registry, primary, Tags.of("pool", "primary"));
+                }
+                if (routing.getReadDataSource() instanceof ConcurrencyLimitingDataSource read) {
+                    registerPermitGauges(registry, read, Tags.of("pool", "read"));
+                }
+            }
+        };
+    }
+
+    private static void registerPermitGauges(MeterRegistry registry, ConcurrencyLimitingDataSource limited, Tags tags) {
+        Gauge.builder("recipeapp.jdbc.permits.available", limited, ConcurrencyLimitingDataSource::getAvailablePermits)
+                .tags(tags)
+                .register(registry);
+        Gauge.builder("recipeapp.jdbc.permits.waiting", limited, ConcurrencyLimitingDataSource::getQueueLength)
+                .tags(tags)
+                .register(registry);
+    }
+}
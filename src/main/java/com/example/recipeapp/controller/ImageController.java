@@ -0,0 +1,182 @@
+package com.example.recipeapp.controller;
+
+import com.example.recipeapp.service.ImageStore;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.util.UriUtils;
+
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * /uploads/** の画像配信。
+ * ファイル名がダイジェストのもの（ImageStore で保存した画像とその派生画像）は
+ * 内容が変わらないので ETag にダイジェストを使い、immutable で長期キャッシュさせる。
+ * 本文は Tomcat の sendfile に任せ、使えない環境では FileChannel.transferTo で送る。
+ */
+@Controller
+public class ImageController {
+
+    // Tomcat の sendfile 連携用リクエスト属性（org.apache.coyote.Constants と同じ値）
+    private static final String SENDFILE_SUPPORTED_ATTR = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME_ATTR = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START_ATTR = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END_ATTR = "org.apache.tomcat.sendfile.end";
+
+    // 小さいファイルは sendfile の準備より普通に書いた方が速い（Tomcat の DefaultServlet と同じ閾値）
+    private static final long SENDFILE_THRESHOLD = 48 * 1024;
+
+    // <sha256>.<拡張子> と派生画像の <sha256>_<variant>.jpg
+    private static final Pattern DIGEST_NAME = Pattern.compile("([0-9a-f]{64}(?:_[a-z]+)?)\\.[a-z0-9]+");
+    private static final Pattern SINGLE_RANGE = Pattern.compile("bytes=(\\d*)-(\\d*)");
+
+    private static final String IMMUTABLE_CACHE_CONTROL = "private, max-age=31536000, immutable";
+    private static final String REVALIDATE_CACHE_CONTROL = "private, max-age=3600, must-revalidate";
+
+    @Autowired
+    private ImageStore imageStore;
+
+    @RequestMapping(value = "/uploads/**", method = {RequestMethod.GET, RequestMethod.HEAD})
+    public void serve(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        Path file;
+        try {
+            // 旧形式のファイル名には日本語が含まれるため UTF-8 でデコードする
+            String path = request.getRequestURI().substring(request.getContextPath().length());
+            file = imageStore.resolve(UriUtils.decode(path, StandardCharsets.UTF_8));
+        } catch (IllegalArgumentException e) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        String fileName = file.getFileName().toString();
+        // 書き込み途中の一時ファイルは配信しない
+        if (fileName.endsWith(".tmp") || fileName.startsWith("tmp_") || !Files.isRegularFile(file)) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+
+        BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+        long length = attributes.size();
+        long lastModified = attributes.lastModifiedTime().toMillis();
+        Matcher digestName = DIGEST_NAME.matcher(fileName);
+        boolean immutable = digestName.matches();
+        // 旧形式のファイル名はサイズと更新日時から作る
+        String etag = "\"" + (immutable ? digestName.group(1) : Long.toHexString(length) + "-" + Long.toHexString(lastModified)) + "\"";
+
+        response.setHeader(HttpHeaders.ETAG, etag);
+        response.setHeader(HttpHeaders.CACHE_CONTROL, immutable ? IMMUTABLE_CACHE_CONTROL : REVALIDATE_CACHE_CONTROL);
+        response.setDateHeader(HttpHeaders.LAST_MODIFIED, lastModified);
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+
+        if (matchesAny(request.getHeader(HttpHeaders.IF_NONE_MATCH), etag)) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+
+        long start = 0;
+        long end = length;
+        String range = request.getHeader(HttpHeaders.RANGE);
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (range != null && (ifRange == null || ifRange.equals(etag))) {
+            // 複数範囲など解釈できない指定（null）は無視して全体を返す
+            long[] bounds = parseRange(range, length);
+            if (bounds != null && bounds.length == 0) {
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+                response.sendError(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                return;
+            } else if (bounds != null) {
+                start = bounds[0];
+                end = bounds[1];
+                response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + (end - 1) + "/" + length);
+            }
+        }
+
+        response.setContentType(MediaTypeFactory.getMediaType(fileName)
+                .orElse(MediaType.APPLICATION_OCTET_STREAM).toString());
+        response.setContentLengthLong(end - start);
+        if (RequestMethod.HEAD.name().equals(request.getMethod())) {
+            return;
+        }
+
+        if (end - start >= SENDFILE_THRESHOLD && Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORTED_ATTR))) {
+            // 本文は Tomcat がレスポンス送信時にカーネルの sendfile で書き出す
+            request.setAttribute(SENDFILE_FILENAME_ATTR, file.toAbsolutePath().toString());
+            request.setAttribute(SENDFILE_START_ATTR, start);
+            request.setAttribute(SENDFILE_END_ATTR, end);
+            return;
+        }
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            WritableByteChannel out = Channels.newChannel(response.getOutputStream());
+            long position = start;
+            while (position < end) {
+                long written = channel.transferTo(position, end - position, out);
+                if (written <= 0) {
+                    break;
+                }
+                position += written;
+            }
+        }
+    }
+
+    private static boolean matchesAny(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals("*") || tag.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 単一範囲の Range ヘッダを [start, end) に変換する。
+     * 解釈できない（複数範囲など）場合は null、満たせない範囲は空配列。
+     */
+    private static long[] parseRange(String range, long length) {
+        Matcher matcher = SINGLE_RANGE.matcher(range.trim());
+        if (!matcher.matches() || (matcher.group(1).isEmpty() && matcher.group(2).isEmpty())) {
+            return null;
+        }
+        try {
+            if (matcher.group(1).isEmpty()) {
+                // bytes=-N は末尾 N バイト
+                long suffix = Long.parseLong(matcher.group(2));
+                return suffix == 0 || length == 0 ? new long[0] : new long[]{Math.max(0, length - suffix), length};
+            }
+            long start = Long.parseLong(matcher.group(1));
+            long last = matcher.group(2).isEmpty() ? Long.MAX_VALUE : Long.parseLong(matcher.group(2));
+            if (last < start) {
+                return null;
+            }
+            if (start >= length) {
+                return new long[0];
+            }
+            return new long[]{start, Math.min(last, length - 1) + 1};
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
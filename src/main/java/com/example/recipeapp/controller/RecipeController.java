@@ -2,73 +2,214 @@ package com.example.recipeapp.controller;
 
 import com.example.recipeapp.model.Recipe;
 import com.example.recipeapp.repository.RecipeRepository;
+import com.example.recipeapp.service.CategoryIndex;
+import com.example.recipeapp.service.FavoriteService;
+import com.example.recipeapp.service.ImageGarbageCollector;
+import com.example.recipeapp.service.IngredientIndex;
+import com.example.recipeapp.service.ImageStore;
+import com.example.recipeapp.service.RecipeCacheService;
+import com.example.recipeapp.service.RecipeChangedEvent;
+import com.example.recipeapp.service.RecipeDataVersion;
+import com.example.recipeapp.service.RecipeExportService;
+import com.example.recipeapp.service.RecipeImportService;
+import com.example.recipeapp.service.RecipeRandomSampler;
+import com.example.recipeapp.service.RecipeResetService;
+import com.example.recipeapp.service.RecipeSearchIndex;
+import com.example.recipeapp.service.RecipeStatsService;
+import com.example.recipeapp.service.RecipeSuggestIndex;
+import com.example.recipeapp.service.SimilarRecipeIndex;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import org.springframework.web.servlet.mvc.support.RedirectAttributes;
+import org.springframework.web.util.UriUtils;
 
 import org.springframework.web.multipart.MultipartFile;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.Principal;
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Set;
 import java.util.stream.Collectors;
 import java.io.UnsupportedEncodingException;
 import java.net.URLEncoder;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
 
+import org.springframework.http.CacheControl;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
-import java.util.NoSuchElementException;
+import java.net.URI;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.ArrayList;
-import java.util.Random;
 
 @Controller
 public class RecipeController {
 
-    private static final int MAX_CATEGORIES = 2;
+    private static final Logger log = LoggerFactory.getLogger(RecipeController.class);
+
+    private static final int MAX_CATEGORIES = Recipe.MAX_CATEGORIES;
+
+    // 一覧画面の1ページあたりの件数（デフォルト・上限）
+    private static final int DEFAULT_PAGE_SIZE = 24;
+    private static final int MAX_PAGE_SIZE = 100;
+
+    // 検索APIの1ページあたりの件数（デフォルト・上限）
+    private static final int DEFAULT_SEARCH_LIMIT = 50;
+    private static final int MAX_SEARCH_LIMIT = 200;
+    // offset + limit 件を順位付けのヒープに保持するので、offset にも上限を設ける
+    private static final int MAX_SEARCH_OFFSET = 10_000;
+    private static final int DEFAULT_SUGGEST_LIMIT = 10;
+    private static final int MAX_SUGGEST_LIMIT = 50;
+    private static final int MAX_PANTRY_MISSING = 20;
+    private static final int DEFAULT_SIMILAR_LIMIT = 6;
+    private static final int MAX_SIMILAR_LIMIT = 20;
+
+    // ランダム表示で一度に選べる件数の上限
+    private static final int MAX_RANDOM_COUNT = 20;
+
+    // ETag 付きの JSON API：ブラウザに保存させ、毎回 If-None-Match で確認させる
+    private static final CacheControl REVALIDATE = CacheControl.noCache().cachePrivate();
 
     @Autowired
     private RecipeRepository recipeRepository;
 
+    @Autowired
+    private RecipeSearchIndex recipeSearchIndex;
+
+    @Autowired
+    private RecipeStatsService recipeStatsService;
+
+    @Autowired
+    private RecipeExportService recipeExportService;
+
+    @Autowired
+    private RecipeImportService recipeImportService;
+
+    @Autowired
+    private RecipeRandomSampler recipeRandomSampler;
+
+    @Autowired
+    private CategoryIndex categoryIndex;
+
+    @Autowired
+    private ImageStore imageStore;
+
+    @Autowired
+    private RecipeCacheService recipeCacheService;
+
+    @Autowired
+    private FavoriteService favoriteService;
+
+    @Autowired
+    private RecipeResetService recipeResetService;
+
+    @Autowired
+    private ImageGarbageCollector imageGarbageCollector;
+
+    @Autowired
+    private RecipeDataVersion recipeDataVersion;
+
+    @Autowired
+    private RecipeSuggestIndex recipeSuggestIndex;
+
+    @Autowired
+    private IngredientIndex ingredientIndex;
+
+    @Autowired
+    private SimilarRecipeIndex similarRecipeIndex;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
     @GetMapping("/home")
-    public String showHome(Model model) {
-        model.addAttribute("recipes", recipeRepository.findAll());
+    public String showHome(@RequestParam(required = false) Long cursor,
+                           @RequestParam(required = false) Integer size,
+                           Model model) {
+        int pageSize = resolvePageSize(size);
+        Slice<Recipe> page = recipeRepository.findByIdGreaterThanOrderByIdAsc(
+                cursorOrStart(cursor), PageRequest.of(0, pageSize));
+        addPageAttributes(model, page, cursor, pageSize, "/home", recipeStatsService.getTotalCount());
         model.addAttribute("favoritesPage", false);
         return "home";
     }
 
-    // ランダムレシピ表示機能
+    // ページサイズを 1〜MAX_PAGE_SIZE の範囲に丸める
+    private int resolvePageSize(Integer size) {
+        if (size == null || size <= 0) {
+            return DEFAULT_PAGE_SIZE;
+        }
+        return Math.min(size, MAX_PAGE_SIZE);
+    }
+
+    private long cursorOrStart(Long cursor) {
+        return cursor != null && cursor > 0 ? cursor : 0L;
+    }
+
+    // キーセットページングの結果と「次へ」のカーソル、全体件数をモデルに設定
+    private void addPageAttributes(Model model, Slice<Recipe> page, Long cursor, int pageSize,
+                                   String pageBaseUrl, long totalCount) {
+        List<Recipe> recipes = page.getContent();
+        model.addAttribute("recipes", recipes);
+        model.addAttribute("totalCount", totalCount);
+        model.addAttribute("cursor", cursor != null && cursor > 0 ? cursor : null);
+        model.addAttribute("nextCursor", page.hasNext() ? recipes.get(recipes.size() - 1).getId() : null);
+        model.addAttribute("pageSize", pageSize);
+        model.addAttribute("pageBaseUrl", pageBaseUrl);
+    }
+
+    // カテゴリ索引で絞り込んだページを ID から読み込んでモデルに設定
+    private void addPageAttributes(Model model, CategoryIndex.CategoryPage page, Long cursor, int pageSize,
+                                   String pageBaseUrl) {
+        List<Recipe> recipes = findAllInOrder(page.ids());
+        model.addAttribute("recipes", recipes);
+        model.addAttribute("totalCount", page.total());
+        model.addAttribute("cursor", cursor != null && cursor > 0 ? cursor : null);
+        model.addAttribute("nextCursor", page.hasNext() ? page.ids().get(page.ids().size() - 1) : null);
+        model.addAttribute("pageSize", pageSize);
+        model.addAttribute("pageBaseUrl", pageBaseUrl);
+    }
+
+    // ランダムレシピ表示機能（count 件を重複なしで選択、category で絞り込み可）
     @GetMapping("/recipes/random")
-    public String showRandomRecipe(Model model, RedirectAttributes redirectAttributes) {
-        List<Recipe> allRecipes = recipeRepository.findAll();
+    public String showRandomRecipe(@RequestParam(defaultValue = "1") int count,
+                                   @RequestParam(required = false) String category,
+                                   Model model, RedirectAttributes redirectAttributes) {
+        int randomCount = Math.min(Math.max(count, 1), MAX_RANDOM_COUNT);
+        String randomCategory = category != null && !category.isBlank() ? category.trim() : null;
+
+        List<Recipe> randomRecipes = findAllInOrder(recipeRandomSampler.sample(randomCount, randomCategory));
 
-        if (allRecipes.isEmpty()) {
+        if (randomRecipes.isEmpty()) {
             redirectAttributes.addFlashAttribute("errorMessage", "表示できるレシピがありません。");
             return "redirect:/home";
         }
 
-        // ランダムにレシピを1つ選択
-        Random random = new Random();
-        Recipe randomRecipe = allRecipes.get(random.nextInt(allRecipes.size()));
-
-        // 1つのレシピをリストに入れて表示
-        List<Recipe> randomRecipeList = new ArrayList<>();
-        randomRecipeList.add(randomRecipe);
-
-        model.addAttribute("recipes", randomRecipeList);
+        model.addAttribute("recipes", randomRecipes);
         model.addAttribute("randomPage", true);
+        model.addAttribute("randomCount", randomCount);
+        model.addAttribute("randomCategory", randomCategory);
         model.addAttribute("favoritesPage", false);
         return "home";
     }
 
-    // カテゴリ数をバリデーションするヘルパーメソッド（改善版）
-    private ValidationResult validateCategories(List<String> categories) {
+    // カテゴリをカテゴリ辞書で検証するヘルパーメソッド
+    // 重複は辞書の ID で判定し、受信したカテゴリ以外の作業用コレクションは作らない
+    // （ベンチマークから呼ぶためパッケージプライベート）
+    ValidationResult validateCategories(List<String> categories) {
         ValidationResult result = new ValidationResult();
 
         if (categories == null || categories.isEmpty()) {
@@ -77,34 +218,62 @@ public class RecipeController {
             return result;
         }
 
-        // nullと空文字列を除外してから重複を除去
-        Set<String> uniqueCategories = new HashSet<>();
-        for (String cat : categories) {
-            if (cat != null && !cat.trim().isEmpty()) {
-                uniqueCategories.add(cat.trim());
+        log.debug("バリデーション - 受信カテゴリ（重複含む）: {}", categories);
+
+        // 空文字は -1、未登録のカテゴリは -2
+        int[] ids = new int[categories.size()];
+        int uniqueCount = 0;
+        for (int i = 0; i < ids.length; i++) {
+            String category = categories.get(i);
+            if (category == null || category.trim().isEmpty()) {
+                ids[i] = -1;
+                continue;
+            }
+            ids[i] = categoryIndex.idOf(category);
+            if (ids[i] < 0) {
+                result.categories = new HashSet<>();
+                result.isValid = false;
+                result.errorMessage = "登録されていないカテゴリです: " + category.trim();
+                log.debug("カテゴリ辞書エラー: {}", category);
+                return result;
+            }
+            if (!containsBefore(ids, i)) {
+                uniqueCount++;
+            }
+        }
+
+        result.categories = new HashSet<>();
+        for (int i = 0; i < ids.length; i++) {
+            if (ids[i] >= 0 && !containsBefore(ids, i)) {
+                result.categories.add(categoryIndex.canonicalName(categories.get(i)));
             }
         }
 
-        System.out.println("バリデーション - 受信カテゴリ（重複含む）: " + categories);
-        System.out.println("バリデーション - ユニークカテゴリ数: " + uniqueCategories.size());
-        System.out.println("バリデーション - カテゴリ内容: " + uniqueCategories);
+        log.debug("バリデーション - ユニークカテゴリ数: {}", uniqueCount);
 
         // カテゴリ数の制限チェック
-        if (uniqueCategories.size() > MAX_CATEGORIES) {
-            result.categories = uniqueCategories;
+        if (uniqueCount > MAX_CATEGORIES) {
             result.isValid = false;
-            result.errorMessage = "カテゴリは" + MAX_CATEGORIES + "つまでしか選択できません。現在" + uniqueCategories.size() + "つ選択されています。";
-            System.out.println("カテゴリ制限エラー: " + uniqueCategories.size() + " > " + MAX_CATEGORIES);
+            result.errorMessage = "カテゴリは" + MAX_CATEGORIES + "つまでしか選択できません。現在" + uniqueCount + "つ選択されています。";
+            log.debug("カテゴリ制限エラー: {} > {}", uniqueCount, MAX_CATEGORIES);
             return result;
         }
 
-        result.categories = uniqueCategories;
         result.isValid = true;
         return result;
     }
 
+    private static boolean containsBefore(int[] ids, int index) {
+        for (int i = 0; i < index; i++) {
+            if (ids[i] == ids[index]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     // バリデーション結果を格納するクラス
-    private static class ValidationResult {
+    static class ValidationResult {
         Set<String> categories;
         boolean isValid;
         String errorMessage;
@@ -119,25 +288,23 @@ public class RecipeController {
                                @RequestParam(required = false) String reference,
                                @RequestParam(value = "categories", required = false) List<String> categories,
                                @RequestParam(name = "image", required = false) MultipartFile imageFile,
+                               @RequestParam(required = false) String uploadedImagePath,
+                               Principal principal,
                                RedirectAttributes redirectAttributes) throws IOException {
 
-        System.out.println("新規登録 - 受信したカテゴリ（生データ）: " + categories);
+        log.debug("新規登録 - 受信したカテゴリ（生データ）: {}", categories);
 
         // 入力値の基本バリデーション
         if (title == null || title.trim().isEmpty()) {
+            discardUpload(uploadedImagePath, principal);
             redirectAttributes.addFlashAttribute("errorMessage", "タイトルは必須です。");
             return "redirect:/recipes/new";
         }
 
-        // カテゴリの重複を除去してからバリデーション
-        List<String> processedCategories = null;
-        if (categories != null) {
-            // 重複を除去したリストを作成
-            processedCategories = new ArrayList<>(new HashSet<>(categories));
-        }
-
-        ValidationResult validationResult = validateCategories(processedCategories);
+        // カテゴリの重複除去はバリデーションでまとめて行う
+        ValidationResult validationResult = validateCategories(categories);
         if (!validationResult.isValid) {
+            discardUpload(uploadedImagePath, principal);
             redirectAttributes.addFlashAttribute("errorMessage", validationResult.errorMessage);
             redirectAttributes.addFlashAttribute("recipe", createRecipeFromParams(title, ingredients, instructions, favorite, reference, validationResult.categories));
             return "redirect:/recipes/new";
@@ -151,27 +318,29 @@ public class RecipeController {
         recipe.setFavorite(favorite);
         recipe.setReference(reference);
 
-        System.out.println("新規登録 - 設定されたカテゴリ: " + validationResult.categories);
+        log.debug("新規登録 - 設定されたカテゴリ: {}", validationResult.categories);
 
-        // 画像アップロード処理
+        // 画像アップロード処理（同じ内容の画像は既存ファイルを共有）
+        // フォームの JavaScript が /api/uploads で先に送った画像は uploadedImagePath で受け取る
         if (imageFile != null && !imageFile.isEmpty()) {
-            String fileName = System.currentTimeMillis() + "_" + imageFile.getOriginalFilename();
-            Path uploadPath = Paths.get(System.getProperty("user.dir"), "uploads");
-            Files.createDirectories(uploadPath);
-            Path filePath = uploadPath.resolve(fileName);
-            imageFile.transferTo(filePath.toFile());
-
-            recipe.setImagePath("/uploads/" + fileName);
+            discardUpload(uploadedImagePath, principal);
+            recipe.setImagePath(imageStore.store(imageFile));
+        } else if (uploadedImagePath != null && !uploadedImagePath.isBlank()) {
+            if (!imageStore.claim(uploadedImagePath, principal.getName())) {
+                redirectAttributes.addFlashAttribute("errorMessage", "アップロードした画像が見つかりません。もう一度選択してください。");
+                return "redirect:/recipes/new";
+            }
+            recipe.setImagePath(uploadedImagePath);
         }
 
         try {
             Recipe savedRecipe = recipeRepository.save(recipe);
-            System.out.println("保存されたレシピID: " + savedRecipe.getId());
-            System.out.println("保存されたカテゴリ: " + savedRecipe.getCategories());
+            eventPublisher.publishEvent(RecipeChangedEvent.saved(savedRecipe));
+            log.info("レシピを登録しました: id={}, categories={}", savedRecipe.getId(), savedRecipe.getCategories());
             redirectAttributes.addFlashAttribute("successMessage", "レシピが正常に登録されました。");
         } catch (Exception e) {
-            System.err.println("レシピ保存エラー: " + e.getMessage());
-            e.printStackTrace();
+            log.error("レシピ保存エラー", e);
+            imageStore.discard(recipe.getImagePath());
             redirectAttributes.addFlashAttribute("errorMessage", "レシピの保存に失敗しました。");
             return "redirect:/recipes/new";
         }
@@ -205,31 +374,27 @@ public class RecipeController {
                                @RequestParam(required = false) String reference,
                                @RequestParam(value = "categories", required = false) List<String> categories,
                                @RequestParam(name = "image", required = false) MultipartFile image,
+                               @RequestParam(required = false) String uploadedImagePath,
                                @RequestParam(name = "deleteCurrentImage", defaultValue = "false") boolean deleteCurrentImage,
+                               Principal principal,
                                RedirectAttributes redirectAttributes
     ) {
 
-        System.out.println("===== レシピ更新処理開始 =====");
-        System.out.println("更新対象ID: " + id);
-        System.out.println("タイトル: " + title);
-        System.out.println("受信したカテゴリ（生データ）: " + categories);
+        log.debug("レシピ更新処理開始: id={}, title={}, 受信したカテゴリ（生データ）={}", id, title, categories);
 
+        String storedImagePath = null;
         try {
             // 入力値の基本バリデーション
             if (title == null || title.trim().isEmpty()) {
+                discardUpload(uploadedImagePath, principal);
                 redirectAttributes.addFlashAttribute("errorMessage", "タイトルは必須です。");
                 return "redirect:/recipes/edit/" + id;
             }
 
-            // カテゴリの重複を除去してからバリデーション
-            List<String> processedCategories = null;
-            if (categories != null) {
-                // 重複を除去したリストを作成
-                processedCategories = new ArrayList<>(new HashSet<>(categories));
-            }
-
-            ValidationResult validationResult = validateCategories(processedCategories);
+            // カテゴリの重複除去はバリデーションでまとめて行う
+            ValidationResult validationResult = validateCategories(categories);
             if (!validationResult.isValid) {
+                discardUpload(uploadedImagePath, principal);
                 redirectAttributes.addFlashAttribute("errorMessage", validationResult.errorMessage);
                 return "redirect:/recipes/edit/" + id;
             }
@@ -247,47 +412,40 @@ public class RecipeController {
             existingRecipe.clearCategories();
             existingRecipe.setCategories(validationResult.categories);
 
-            System.out.println("更新 - 設定されたカテゴリ: " + validationResult.categories);
+            log.debug("更新 - 設定されたカテゴリ: {}", validationResult.categories);
 
-            // 画像処理
+            // 画像処理（古い画像は保存後に参照がなくなった時点で ImageStore が削除する）
             if (image != null && !image.isEmpty()) {
-                Path uploadPath = Paths.get(System.getProperty("user.dir"), "uploads");
-                Files.createDirectories(uploadPath);
-
-                // 古い画像があれば削除
-                if (existingRecipe.getImagePath() != null) {
-                    Path oldPath = uploadPath.resolve(Paths.get(existingRecipe.getImagePath()).getFileName());
-                    Files.deleteIfExists(oldPath);
+                discardUpload(uploadedImagePath, principal);
+                storedImagePath = imageStore.store(image);
+            } else if (uploadedImagePath != null && !uploadedImagePath.isBlank()) {
+                if (!imageStore.claim(uploadedImagePath, principal.getName())) {
+                    redirectAttributes.addFlashAttribute("errorMessage", "アップロードした画像が見つかりません。もう一度選択してください。");
+                    return "redirect:/recipes/edit/" + id;
+                }
+                storedImagePath = uploadedImagePath;
+            }
+            if (storedImagePath != null) {
+                if (!storedImagePath.equals(existingRecipe.getImagePath())) {
+                    clearDerivatives(existingRecipe);
+                    existingRecipe.setImagePath(storedImagePath);
                 }
-
-                // 新しい画像を保存
-                String fileName = System.currentTimeMillis() + "_" + image.getOriginalFilename();
-                Path filePath = uploadPath.resolve(fileName);
-                image.transferTo(filePath.toFile());
-
-                existingRecipe.setImagePath("/uploads/" + fileName);
             } else if (deleteCurrentImage) {
                 // 画像削除フラグが立っている場合
-                if (existingRecipe.getImagePath() != null) {
-                    Path uploadPath = Paths.get(System.getProperty("user.dir"), "uploads");
-                    Path oldPath = uploadPath.resolve(Paths.get(existingRecipe.getImagePath()).getFileName());
-                    Files.deleteIfExists(oldPath);
-                }
+                clearDerivatives(existingRecipe);
                 existingRecipe.setImagePath(null);
             }
 
             Recipe savedRecipe = recipeRepository.save(existingRecipe);
-            System.out.println("更新されたレシピID: " + savedRecipe.getId());
-            System.out.println("更新されたカテゴリ: " + savedRecipe.getCategories());
-            System.out.println("===== レシピ更新処理完了 =====");
+            eventPublisher.publishEvent(RecipeChangedEvent.saved(savedRecipe));
+            log.info("レシピを更新しました: id={}, categories={}", savedRecipe.getId(), savedRecipe.getCategories());
 
             redirectAttributes.addFlashAttribute("successMessage", "レシピが正常に更新されました。");
             return "redirect:/home?loading=true";
 
         } catch (Exception e) {
-            System.err.println("===== レシピ更新エラー =====");
-            System.err.println("エラーメッセージ: " + e.getMessage());
-            e.printStackTrace();
+            log.error("レシピ更新エラー: id={}", id, e);
+            imageStore.discard(storedImagePath);
             redirectAttributes.addFlashAttribute("errorMessage", "レシピの更新に失敗しました: " + e.getMessage());
             return "redirect:/recipes/edit/" + id;
         }
@@ -299,17 +457,11 @@ public class RecipeController {
                                @RequestParam(required = false) Boolean from,
                                @RequestParam(required = false) String category) {
         try {
-            // 画像ファイルも削除
-            Recipe recipe = recipeRepository.findById(id).orElse(null);
-            if (recipe != null && recipe.getImagePath() != null) {
-                Path uploadPath = Paths.get(System.getProperty("user.dir"), "uploads");
-                Path imagePath = uploadPath.resolve(Paths.get(recipe.getImagePath()).getFileName());
-                Files.deleteIfExists(imagePath);
-            }
-
+            // 画像ファイルは参照がなくなった時点で ImageStore が削除する
             recipeRepository.deleteById(id);
+            eventPublisher.publishEvent(RecipeChangedEvent.deleted(id));
         } catch (Exception e) {
-            System.err.println("レシピ削除エラー: " + e.getMessage());
+            log.error("レシピ削除エラー: id={}", id, e);
         }
 
         if (Boolean.TRUE.equals(from)) {
@@ -337,242 +489,439 @@ public class RecipeController {
                 return ResponseEntity.notFound().build();
             }
 
-            // 画像ファイルも削除
-            Recipe recipe = recipeRepository.findById(id).orElse(null);
-            if (recipe != null && recipe.getImagePath() != null) {
-                Path uploadPath = Paths.get(System.getProperty("user.dir"), "uploads");
-                Path imagePath = uploadPath.resolve(Paths.get(recipe.getImagePath()).getFileName());
-                Files.deleteIfExists(imagePath);
-            }
-
+            // 画像ファイルは参照がなくなった時点で ImageStore が削除する
             recipeRepository.deleteById(id);
+            eventPublisher.publishEvent(RecipeChangedEvent.deleted(id));
             return ResponseEntity.ok().build();
         } catch (Exception e) {
-            System.err.println("AJAX削除エラー: " + e.getMessage());
+            log.error("AJAX削除エラー: id={}", id, e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
         }
     }
 
     // お気に入りのみ表示
     @GetMapping("/recipes/favorites")
-    public String showFavoriteRecipes(Model model) {
-        model.addAttribute("recipes", recipeRepository.findByFavoriteTrue());
+    public String showFavoriteRecipes(@RequestParam(required = false) Long cursor,
+                                      @RequestParam(required = false) Integer size,
+                                      Model model) {
+        int pageSize = resolvePageSize(size);
+        Slice<Recipe> page = recipeRepository.findByFavoriteTrueAndIdGreaterThanOrderByIdAsc(
+                cursorOrStart(cursor), PageRequest.of(0, pageSize));
+        addPageAttributes(model, page, cursor, pageSize, "/recipes/favorites", recipeStatsService.getFavoriteCount());
         model.addAttribute("favoritesPage", true);
         return "home";
     }
 
     // カテゴリ別表示
     @GetMapping("/recipes/category/{category}")
-    public String showRecipesByCategory(@PathVariable String category, Model model) {
-        List<Recipe> recipes = recipeRepository.findByCategory(category);
-        model.addAttribute("recipes", recipes);
+    public String showRecipesByCategory(@PathVariable String category,
+                                        @RequestParam(required = false) Long cursor,
+                                        @RequestParam(required = false) Integer size,
+                                        Model model) {
+        int pageSize = resolvePageSize(size);
+        CategoryIndex.CategoryPage page = categoryIndex.page(
+                List.of(category), true, cursorOrStart(cursor), pageSize);
+        addPageAttributes(model, page, cursor, pageSize, "/recipes/category/" + category);
         model.addAttribute("categoryName", category);
         return "home";
     }
 
-    // お気に入りトグル
+    /**
+     * 複数カテゴリでの絞り込み
+     * match=all ならすべてのカテゴリを含むレシピ、any ならいずれかを含むレシピを表示する。
+     */
+    @GetMapping("/recipes/categories")
+    public String showRecipesByCategories(@RequestParam(name = "c", required = false) List<String> categories,
+                                          @RequestParam(defaultValue = "all") String match,
+                                          @RequestParam(required = false) Long cursor,
+                                          @RequestParam(required = false) Integer size,
+                                          Model model) {
+        if (categories == null || categories.isEmpty()) {
+            return "redirect:/home";
+        }
+        int pageSize = resolvePageSize(size);
+        boolean matchAll = !"any".equalsIgnoreCase(match);
+        CategoryIndex.CategoryPage page = categoryIndex.page(categories, matchAll, cursorOrStart(cursor), pageSize);
+
+        String query = categories.stream()
+                .map(category -> "c=" + UriUtils.encodeQueryParam(category, StandardCharsets.UTF_8))
+                .collect(Collectors.joining("&"));
+        addPageAttributes(model, page, cursor, pageSize,
+                "/recipes/categories?" + query + "&match=" + (matchAll ? "all" : "any"));
+        model.addAttribute("categoryName", String.join(matchAll ? " かつ " : " または ", categories));
+        return "home";
+    }
+
+    // お気に入りトグル（レシピを読み込まずに反転する）
     @PostMapping("/recipes/{id}/toggleFavorite")
     @ResponseBody
     public ResponseEntity<Boolean> toggleFavorite(@PathVariable Long id) {
         try {
-            Recipe recipe = recipeRepository.findById(id)
-                    .orElseThrow(() -> new NoSuchElementException("指定されたレシピが見つかりません ID: " + id));
-            recipe.setFavorite(!recipe.isFavorite());
-            recipeRepository.save(recipe);
-            return ResponseEntity.ok(recipe.isFavorite());
+            return favoriteService.toggle(id)
+                    .map(ResponseEntity::ok)
+                    .orElseGet(() -> ResponseEntity.notFound().build());
         } catch (Exception e) {
-            System.err.println("お気に入りトグルエラー: " + e.getMessage());
+            log.error("お気に入りトグルエラー: id={}", id, e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
         }
     }
 
     /**
      * 統計情報を取得するAPIエンドポイント
+     * 件数は RecipeStatsService のライブ集計から返す（DBアクセスなし）。
      */
     @GetMapping("/api/stats")
     @ResponseBody
-    public ResponseEntity<Map<String, Object>> getRecipeStats() {
+    public ResponseEntity<Map<String, Object>> getRecipeStats(WebRequest webRequest) {
+        String etag = recipeDataVersion.etag();
+        if (webRequest.checkNotModified(etag)) {
+            return notModified(etag);
+        }
         try {
-            List<Recipe> allRecipes = recipeRepository.findAll();
-            List<Recipe> favoriteRecipes = recipeRepository.findByFavoriteTrue();
-
-            // カテゴリ別の統計を計算
-            Map<String, Long> categoryStats = allRecipes.stream()
-                    .flatMap(recipe -> recipe.getCategories().stream())
-                    .collect(Collectors.groupingBy(
-                            category -> category,
-                            Collectors.counting()
-                    ));
+            RecipeStatsService.Stats snapshot = recipeStatsService.getStats();
+            Map<String, Long> categoryStats = snapshot.categoryCounts();
 
             Map<String, Object> stats = new HashMap<>();
-            stats.put("totalRecipes", allRecipes.size());
-            stats.put("favoriteRecipes", favoriteRecipes.size());
+            stats.put("totalRecipes", snapshot.totalRecipes());
+            stats.put("favoriteRecipes", snapshot.favoriteRecipes());
             stats.put("categoryStats", categoryStats);
             stats.put("averageRecipesPerCategory",
                     categoryStats.isEmpty() ? 0 :
                             categoryStats.values().stream().mapToLong(Long::longValue).average().orElse(0));
 
-            return ResponseEntity.ok(stats);
+            return ResponseEntity.ok().eTag(etag).cacheControl(REVALIDATE).body(stats);
         } catch (Exception e) {
-            System.err.println("統計情報取得エラー: " + e.getMessage());
+            log.error("統計情報取得エラー", e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
         }
     }
 
     /**
      * データエクスポート機能
+     * format=json（従来の配列形式）/ ndjson / csv（gzip 圧縮）を選択でき、
+     * いずれもDBから1件ずつ読みながらレスポンスへ直接書き出す。
      */
     @GetMapping("/api/export")
     @ResponseBody
-    public ResponseEntity<List<Map<String, Object>>> exportRecipeData() {
+    public ResponseEntity<StreamingResponseBody> exportRecipeData(
+            @RequestParam(required = false, defaultValue = "json") String format,
+            WebRequest webRequest) {
+        RecipeExportService.Format exportFormat;
         try {
-            List<Recipe> allRecipes = recipeRepository.findAll();
-
-            List<Map<String, Object>> exportData = allRecipes.stream().map(recipe -> {
-                Map<String, Object> recipeData = new HashMap<>();
-                recipeData.put("id", recipe.getId());
-                recipeData.put("title", recipe.getTitle());
-                recipeData.put("ingredients", recipe.getIngredients());
-                recipeData.put("instructions", recipe.getInstructions());
-                recipeData.put("categories", recipe.getCategories());
-                recipeData.put("favorite", recipe.isFavorite());
-                recipeData.put("reference", recipe.getReference());
-                recipeData.put("hasImage", recipe.getImagePath() != null);
-                return recipeData;
-            }).collect(Collectors.toList());
-
-            return ResponseEntity.ok(exportData);
+            exportFormat = RecipeExportService.Format.of(format);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+        String etag = recipeDataVersion.etag();
+        if (webRequest.checkNotModified(etag)) {
+            return notModified(etag);
+        }
+
+        StreamingResponseBody body = out -> {
+            long start = System.currentTimeMillis();
+            try {
+                long count = recipeExportService.export(exportFormat, out);
+                log.info("データエクスポート完了: {}件 ({}, {}ms)", count, exportFormat,
+                        System.currentTimeMillis() - start);
+            } catch (Exception e) {
+                log.error("データエクスポートエラー", e);
+                throw e;
+            }
+        };
+
+        return ResponseEntity.ok()
+                .eTag(etag)
+                .cacheControl(REVALIDATE)
+                .contentType(MediaType.parseMediaType(exportFormat.getContentType()))
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        ContentDisposition.attachment().filename(exportFormat.getFileName()).build().toString())
+                .body(body);
+    }
+
+    /**
+     * データ一括インポート（/api/export の対）
+     * NDJSON（1行1レシピ）または JSON 配列をリクエスト本文から1件ずつ読み、
+     * 一定件数ごとにまとめてコミットする。id・hasImage は無視して新しい ID で登録する。
+     */
+    @PostMapping("/api/import")
+    @ResponseBody
+    public ResponseEntity<Map<String, Object>> importRecipeData(InputStream body) {
+        try {
+            RecipeImportService.ImportResult result = recipeImportService.importRecipes(body);
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("imported", result.imported());
+            response.put("categoryRows", result.categoryRows());
+            response.put("skipped", result.skipped());
+            response.put("errors", result.errors());
+            response.put("elapsedMillis", result.elapsedMillis());
+            response.put("rowsPerSecond", Math.round(result.rowsPerSecond()));
+            if (result.aborted() != null) {
+                response.put("aborted", result.aborted());
+            }
+
+            log.info("データインポート完了: {}件 (スキップ {}件, {}ms, {}件/秒)", result.imported(), result.skipped(),
+                    result.elapsedMillis(), Math.round(result.rowsPerSecond()));
+
+            return result.aborted() == null
+                    ? ResponseEntity.ok(response)
+                    : ResponseEntity.badRequest().body(response);
         } catch (Exception e) {
-            System.err.println("データエクスポートエラー: " + e.getMessage());
+            log.error("データインポートエラー", e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
         }
     }
 
+    /**
+     * 二次キャッシュの統計情報（キャッシュサイズの調整用）
+     */
+    @GetMapping("/api/cache-stats")
+    @ResponseBody
+    public ResponseEntity<Map<String, Object>> getCacheStats() {
+        return ResponseEntity.ok(recipeCacheService.getStatistics());
+    }
+
+    /**
+     * 直近の孤立画像 GC の結果（解放した容量など）。まだ実行していなければ 204。
+     */
+    @GetMapping("/api/admin/image-gc")
+    @ResponseBody
+    public ResponseEntity<ImageGarbageCollector.Result> getImageGcResult() {
+        ImageGarbageCollector.Result result = imageGarbageCollector.getLastResult();
+        return result != null ? ResponseEntity.ok(result) : ResponseEntity.noContent().build();
+    }
+
     /**
      * 全レシピのカテゴリ一覧を取得
      */
     @GetMapping("/api/categories")
     @ResponseBody
-    public ResponseEntity<Map<String, Object>> getAllCategories() {
+    public ResponseEntity<Map<String, Object>> getAllCategories(WebRequest webRequest) {
+        String etag = recipeDataVersion.etag();
+        if (webRequest.checkNotModified(etag)) {
+            return notModified(etag);
+        }
         try {
-            List<Recipe> allRecipes = recipeRepository.findAll();
-
-            // カテゴリとその使用回数を取得
-            Map<String, Long> categoryCount = allRecipes.stream()
-                    .flatMap(recipe -> recipe.getCategories().stream())
-                    .collect(Collectors.groupingBy(
-                            category -> category,
-                            Collectors.counting()
-                    ));
-
-            // カテゴリを使用回数の降順でソート
-            List<Map.Entry<String, Long>> sortedCategories = categoryCount.entrySet().stream()
-                    .sorted(Map.Entry.<String, Long>comparingByValue().reversed())
-                    .collect(Collectors.toList());
+            // カテゴリを使用回数の降順で取得
+            List<Map.Entry<String, Long>> sortedCategories = recipeStatsService.getCategoriesByCount();
 
             Map<String, Object> result = new HashMap<>();
             result.put("categories", sortedCategories);
-            result.put("totalCategories", categoryCount.size());
+            result.put("totalCategories", sortedCategories.size());
 
-            return ResponseEntity.ok(result);
+            return ResponseEntity.ok().eTag(etag).cacheControl(REVALIDATE).body(result);
         } catch (Exception e) {
-            System.err.println("カテゴリ取得エラー: " + e.getMessage());
+            log.error("カテゴリ取得エラー", e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
         }
     }
 
     /**
      * 検索機能の強化（APIエンドポイント）
+     * インメモリの転置インデックスで検索し、該当ページのレシピだけをDBから取得する。
+     * 一致件数の合計は X-Total-Count ヘッダーで返す。
      */
     @GetMapping("/api/search")
     @ResponseBody
     public ResponseEntity<List<Recipe>> searchRecipes(
+            @RequestParam(required = false) String q,
             @RequestParam(required = false) String title,
             @RequestParam(required = false) String category,
             @RequestParam(required = false) String ingredient,
-            @RequestParam(required = false) Boolean favorite) {
+            @RequestParam(required = false) Boolean favorite,
+            @RequestParam(defaultValue = "0") int offset,
+            @RequestParam(defaultValue = "" + DEFAULT_SEARCH_LIMIT) int limit,
+            WebRequest webRequest) {
+        // カテゴリで絞り込む検索の結果は、該当カテゴリのレシピが変わらなければ変わらない
+        String etag = category != null ? recipeDataVersion.categoryEtag(category) : recipeDataVersion.etag();
+        if (webRequest.checkNotModified(etag)) {
+            return notModified(etag);
+        }
         try {
-            List<Recipe> allRecipes = recipeRepository.findAll();
-
-            List<Recipe> filteredRecipes = allRecipes.stream()
-                    .filter(recipe -> {
-                        boolean matches = true;
-
-                        if (title != null && !title.trim().isEmpty()) {
-                            matches &= recipe.getTitle().toLowerCase()
-                                    .contains(title.toLowerCase());
-                        }
-
-                        if (category != null && !category.trim().isEmpty()) {
-                            matches &= recipe.getCategories().stream()
-                                    .anyMatch(cat -> cat.toLowerCase()
-                                            .contains(category.toLowerCase()));
-                        }
-
-                        if (ingredient != null && !ingredient.trim().isEmpty()) {
-                            matches &= recipe.getIngredients().toLowerCase()
-                                    .contains(ingredient.toLowerCase());
-                        }
+            int safeOffset = Math.min(Math.max(offset, 0), MAX_SEARCH_OFFSET);
+            int safeLimit = Math.min(Math.max(limit, 0), MAX_SEARCH_LIMIT);
+
+            RecipeSearchIndex.SearchResult result = recipeSearchIndex.search(
+                    new RecipeSearchIndex.SearchQuery(q, title, category, ingredient, favorite),
+                    safeOffset, safeLimit);
+
+            return ResponseEntity.ok()
+                    .eTag(etag)
+                    .cacheControl(REVALIDATE)
+                    .header("X-Total-Count", String.valueOf(result.total()))
+                    .body(findAllInOrder(result.ids()));
+        } catch (Exception e) {
+            log.error("検索エラー", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
 
-                        if (favorite != null) {
-                            matches &= recipe.isFavorite() == favorite;
-                        }
+    /**
+     * 検索欄の入力補完。タイトル・材料名・カテゴリ名のうち prefix で始まるものを、
+     * 含むレシピの件数が多い順に返す（メモリ上の索引だけで答え、DB には問い合わせない）。
+     */
+    @GetMapping("/api/suggest")
+    @ResponseBody
+    public ResponseEntity<List<RecipeSuggestIndex.Suggestion>> suggest(
+            @RequestParam(defaultValue = "") String prefix,
+            @RequestParam(defaultValue = "" + DEFAULT_SUGGEST_LIMIT) int limit,
+            WebRequest webRequest) {
+        String etag = recipeDataVersion.etag();
+        if (webRequest.checkNotModified(etag)) {
+            return notModified(etag);
+        }
+        int safeLimit = Math.min(Math.max(limit, 0), MAX_SUGGEST_LIMIT);
+        return ResponseEntity.ok()
+                .eTag(etag)
+                .cacheControl(REVALIDATE)
+                .body(recipeSuggestIndex.suggest(prefix, safeLimit));
+    }
 
-                        return matches;
-                    })
-                    .collect(Collectors.toList());
+    /**
+     * 手持ちの材料で作れるレシピ。ingredients は材料名（カンマ区切り・複数指定可、分量付きでもよい）。
+     * 足りない材料が maxMissing 個以下のレシピを、足りない数が少ない順に返す。
+     * 材料の照合はメモリ上の索引で行い、DBからは該当ページのレシピだけを取得する。
+     * 一致件数の合計は X-Total-Count ヘッダーで返す。
+     */
+    @GetMapping("/api/pantry/recipes")
+    @ResponseBody
+    public ResponseEntity<List<Map<String, Object>>> pantryRecipes(
+            @RequestParam List<String> ingredients,
+            @RequestParam(defaultValue = "0") int maxMissing,
+            @RequestParam(defaultValue = "0") int offset,
+            @RequestParam(defaultValue = "" + DEFAULT_SEARCH_LIMIT) int limit,
+            WebRequest webRequest) {
+        String etag = recipeDataVersion.etag();
+        if (webRequest.checkNotModified(etag)) {
+            return notModified(etag);
+        }
+        try {
+            int safeMissing = Math.min(Math.max(maxMissing, 0), MAX_PANTRY_MISSING);
+            int safeOffset = Math.min(Math.max(offset, 0), MAX_SEARCH_OFFSET);
+            int safeLimit = Math.min(Math.max(limit, 0), MAX_SEARCH_LIMIT);
+
+            IngredientIndex.PantryResult result = ingredientIndex.match(ingredients, safeMissing, safeOffset, safeLimit);
+            List<Long> ids = result.matches().stream().map(IngredientIndex.PantryMatch::recipeId).toList();
+            Map<Long, Recipe> recipes = findAllInOrder(ids).stream()
+                    .collect(Collectors.toMap(Recipe::getId, recipe -> recipe));
+
+            List<Map<String, Object>> body = new ArrayList<>();
+            for (IngredientIndex.PantryMatch match : result.matches()) {
+                Recipe recipe = recipes.get(match.recipeId());
+                if (recipe == null) {
+                    continue;
+                }
+                Map<String, Object> item = new LinkedHashMap<>();
+                item.put("recipe", recipe);
+                item.put("matched", match.matched());
+                item.put("required", match.required());
+                item.put("missing", match.missing());
+                body.add(item);
+            }
+            return ResponseEntity.ok()
+                    .eTag(etag)
+                    .cacheControl(REVALIDATE)
+                    .header("X-Total-Count", String.valueOf(result.total()))
+                    .body(body);
+        } catch (Exception e) {
+            log.error("材料検索エラー", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
 
-            return ResponseEntity.ok(filteredRecipes);
+    /**
+     * 似たレシピ（材料とカテゴリの重なりが大きいもの）。編集画面のパネルから呼ぶ。
+     * 候補は LSH の索引から求め、DBからは返すレシピだけを取得する。
+     */
+    @GetMapping("/api/recipes/{id}/similar")
+    @ResponseBody
+    public ResponseEntity<List<Map<String, Object>>> similarRecipes(
+            @PathVariable Long id,
+            @RequestParam(defaultValue = "" + DEFAULT_SIMILAR_LIMIT) int limit,
+            WebRequest webRequest) {
+        String etag = recipeDataVersion.etag();
+        if (webRequest.checkNotModified(etag)) {
+            return notModified(etag);
+        }
+        try {
+            int safeLimit = Math.min(Math.max(limit, 0), MAX_SIMILAR_LIMIT);
+            List<SimilarRecipeIndex.Similar> similar = similarRecipeIndex.similarTo(id, safeLimit);
+            List<Long> ids = similar.stream().map(SimilarRecipeIndex.Similar::recipeId).toList();
+            Map<Long, Recipe> recipes = findAllInOrder(ids).stream()
+                    .collect(Collectors.toMap(Recipe::getId, recipe -> recipe));
+
+            List<Map<String, Object>> body = new ArrayList<>();
+            for (SimilarRecipeIndex.Similar item : similar) {
+                Recipe recipe = recipes.get(item.recipeId());
+                if (recipe == null) {
+                    continue;
+                }
+                Map<String, Object> entry = new LinkedHashMap<>();
+                entry.put("recipe", recipe);
+                entry.put("similarity", item.similarity());
+                body.add(entry);
+            }
+            return ResponseEntity.ok()
+                    .eTag(etag)
+                    .cacheControl(REVALIDATE)
+                    .body(body);
         } catch (Exception e) {
-            System.err.println("検索エラー: " + e.getMessage());
+            log.error("類似レシピ取得エラー: {}", id, e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
         }
     }
 
+    // ID の並び順を保ったままレシピを取得する（二次キャッシュにあるものはDBに問い合わせない）
+    private List<Recipe> findAllInOrder(List<Long> ids) {
+        return recipeRepository.findAllByIdInOrder(ids);
+    }
+
     /**
      * レシピの一括削除（管理機能）- 全データリセット機能の実装
+     * 削除はバックグラウンドのジョブで行い、すぐに 202 とジョブの状態を返す。
+     * 実行中のジョブがあれば 409 とそのジョブの状態を返す。
      */
     @PostMapping("/api/admin/reset-data")
     @ResponseBody
-    public ResponseEntity<String> resetAllData() {
+    public ResponseEntity<RecipeResetService.Status> resetAllData() {
         try {
-            System.out.println("全データリセット処理開始");
-
-            // 画像ファイルも削除
-            List<Recipe> allRecipes = recipeRepository.findAll();
-            Path uploadPath = Paths.get(System.getProperty("user.dir"), "uploads");
-            int deletedImageCount = 0;
-
-            for (Recipe recipe : allRecipes) {
-                if (recipe.getImagePath() != null) {
-                    try {
-                        Path imagePath = uploadPath.resolve(Paths.get(recipe.getImagePath()).getFileName());
-                        if (Files.deleteIfExists(imagePath)) {
-                            deletedImageCount++;
-                            System.out.println("画像削除成功: " + imagePath.getFileName());
-                        }
-                    } catch (Exception imageDeleteError) {
-                        System.err.println("画像削除エラー (継続): " + imageDeleteError.getMessage());
-                    }
-                }
-            }
+            return recipeResetService.start()
+                    .map(status -> ResponseEntity.accepted()
+                            .location(URI.create("/api/admin/reset-data/" + status.jobId()))
+                            .body(status))
+                    .orElseGet(() -> ResponseEntity.status(HttpStatus.CONFLICT)
+                            .body(recipeResetService.latest().orElse(null)));
+        } catch (Exception e) {
+            log.error("データリセットエラー", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
 
-            // 全レシピをデータベースから削除
-            int recipeCount = allRecipes.size();
-            recipeRepository.deleteAll();
+    /**
+     * データリセットジョブの進捗（削除件数・処理速度）
+     */
+    @GetMapping("/api/admin/reset-data/{jobId}")
+    @ResponseBody
+    public ResponseEntity<RecipeResetService.Status> getResetStatus(@PathVariable String jobId) {
+        return recipeResetService.status(jobId)
+                .map(status -> ResponseEntity.ok().header(HttpHeaders.CACHE_CONTROL, "no-store").body(status))
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
 
-            System.out.println("全データリセット完了:");
-            System.out.println("- 削除されたレシピ数: " + recipeCount);
-            System.out.println("- 削除された画像数: " + deletedImageCount);
+    // If-None-Match が現在の版数と一致したときの応答（本文は作らない）
+    private static <T> ResponseEntity<T> notModified(String etag) {
+        return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).cacheControl(REVALIDATE).build();
+    }
 
-            return ResponseEntity.ok("データリセットが完了しました。削除されたレシピ: " + recipeCount + "件、画像: " + deletedImageCount + "件");
+    // 先にアップロードされたがレシピに使わない画像を手放す（他のユーザーがアップロードしたものには触れない）
+    private void discardUpload(String uploadedImagePath, Principal principal) {
+        imageStore.discard(uploadedImagePath, principal.getName());
+    }
 
-        } catch (Exception e) {
-            System.err.println("データリセットエラー: " + e.getMessage());
-            e.printStackTrace();
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                    .body("データリセットに失敗しました: " + e.getMessage());
-        }
+    // 派生画像のパスをクリアする（新しい画像の派生画像は保存後に非同期で生成される）
+    private void clearDerivatives(Recipe recipe) {
+        recipe.setCardImagePath(null);
+        recipe.setDetailImagePath(null);
     }
 
     // パラメータからレシピオブジェクトを作成するヘルパーメソッド
@@ -0,0 +1,147 @@
+package com.example.recipeapp.controller;
+
+import com.example.recipeapp.service.ImageStore;
+import com.example.recipeapp.service.UploadProgressTracker;
+import jakarta.servlet.http.HttpServletRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Controller;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MaxUploadSizeExceededException;
+import org.springframework.web.util.UriUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.Principal;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * 画像のストリーミングアップロード。
+ * 本文は画像そのもの（multipart ではない）で、種類・サイズ・アップロード ID を本文を読む前にヘッダーで検証し、
+ * 受信しながら SHA-256 を計算して uploads ディレクトリへ1回で書き出す。
+ * 返した imagePath をレシピ登録・更新フォームの uploadedImagePath で送るとレシピに紐づく。
+ * 進捗は X-Upload-Id で指定した ID で /api/uploads/{uploadId}/progress から取得できる。
+ */
+@Controller
+public class UploadController {
+
+    private static final Logger log = LoggerFactory.getLogger(UploadController.class);
+
+    private static final Set<MediaType> ALLOWED_TYPES = Set.of(
+            MediaType.IMAGE_JPEG, MediaType.IMAGE_PNG, MediaType.IMAGE_GIF, MediaType.parseMediaType("image/webp"));
+
+    private static final Pattern UPLOAD_ID = Pattern.compile("[A-Za-z0-9-]{1,64}");
+
+    @Autowired
+    private ImageStore imageStore;
+
+    @Autowired
+    private UploadProgressTracker uploadProgressTracker;
+
+    @Value("${recipeapp.images.max-upload-size:10MB}")
+    private DataSize maxUploadSize;
+
+    @PostMapping("/api/uploads")
+    @ResponseBody
+    public ResponseEntity<Map<String, Object>> upload(HttpServletRequest request,
+                                                      Principal principal,
+                                                      @RequestHeader(value = "X-Upload-Id", required = false) String uploadId,
+                                                      @RequestHeader(value = "X-File-Name", required = false) String fileName) {
+        // ここまで本文は読んでいない
+        MediaType contentType;
+        try {
+            contentType = request.getContentType() != null ? MediaType.parseMediaType(request.getContentType()) : null;
+        } catch (IllegalArgumentException e) {
+            contentType = null;
+        }
+        if (contentType == null || !ALLOWED_TYPES.contains(new MediaType(contentType.getType(), contentType.getSubtype()))) {
+            return reject(HttpStatus.UNSUPPORTED_MEDIA_TYPE, "画像ファイル（JPEG, PNG, GIF, WebP）を送信してください。");
+        }
+        long maxBytes = maxUploadSize.toBytes();
+        long declaredLength = request.getContentLengthLong();
+        if (declaredLength > maxBytes) {
+            return reject(HttpStatus.PAYLOAD_TOO_LARGE, "画像のサイズは" + maxUploadSize.toMegabytes() + "MBまでです。");
+        }
+        if (uploadId != null && !UPLOAD_ID.matcher(uploadId).matches()) {
+            return reject(HttpStatus.BAD_REQUEST, "アップロード ID が不正です。");
+        }
+
+        String originalFilename;
+        try {
+            originalFilename = fileName != null
+                    ? UriUtils.decode(fileName, StandardCharsets.UTF_8)
+                    : "upload." + contentType.getSubtype();
+        } catch (IllegalArgumentException e) {
+            // 不完全な % エスケープ
+            return reject(HttpStatus.BAD_REQUEST, "ファイル名が不正です。");
+        }
+        String progressKey = progressKey(principal, uploadId);
+        try (InputStream in = uploadProgressTracker.track(progressKey, request.getInputStream(), declaredLength, maxBytes)) {
+            String imagePath = imageStore.store(in, originalFilename, principal.getName());
+            uploadProgressTracker.complete(progressKey, imagePath);
+
+            Map<String, Object> result = new HashMap<>();
+            result.put("imagePath", imagePath);
+            return ResponseEntity.status(HttpStatus.CREATED).body(result);
+        } catch (MaxUploadSizeExceededException e) {
+            uploadProgressTracker.fail(progressKey, "too-large");
+            return reject(HttpStatus.PAYLOAD_TOO_LARGE, "画像のサイズは" + maxUploadSize.toMegabytes() + "MBまでです。");
+        } catch (IOException e) {
+            // クライアントの切断もここに来る
+            uploadProgressTracker.fail(progressKey, "io-error");
+            log.warn("画像アップロードエラー: {}", e.getMessage());
+            return reject(HttpStatus.INTERNAL_SERVER_ERROR, "画像のアップロードに失敗しました。");
+        }
+    }
+
+    /**
+     * アップロードの進捗（受信バイト数・状態）。すぐに返すので、フォームは一定間隔で問い合わせる。
+     */
+    @GetMapping("/api/uploads/{uploadId}/progress")
+    @ResponseBody
+    public ResponseEntity<UploadProgressTracker.Progress> progress(@PathVariable String uploadId, Principal principal) {
+        if (!UPLOAD_ID.matcher(uploadId).matches()) {
+            return ResponseEntity.badRequest().build();
+        }
+        UploadProgressTracker.Progress progress = uploadProgressTracker.get(progressKey(principal, uploadId));
+        return progress != null
+                ? ResponseEntity.ok().header(HttpHeaders.CACHE_CONTROL, "no-store").body(progress)
+                : ResponseEntity.notFound().build();
+    }
+
+    /**
+     * アップロードしたがレシピに使わなかった画像を手放す（フォームで画像を取り消したとき）。
+     * 同じ内容の画像は同じパスになるので、自分がアップロードした分だけを手放す。
+     */
+    @DeleteMapping("/api/uploads")
+    @ResponseBody
+    public ResponseEntity<Void> discard(@RequestParam String imagePath, Principal principal) {
+        if (!imageStore.discard(imagePath, principal.getName())) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.noContent().build();
+    }
+
+    // 他のユーザーの進捗は見えないよう、ユーザー名と組み合わせる
+    private static String progressKey(Principal principal, String uploadId) {
+        return uploadId != null && principal != null ? principal.getName() + ":" + uploadId : null;
+    }
+
+    // 読まなかった本文を Tomcat に読み捨てさせないよう、接続を閉じる
+    private static ResponseEntity<Map<String, Object>> reject(HttpStatus status, String message) {
+        Map<String, Object> body = new HashMap<>();
+        body.put("error", message);
+        return ResponseEntity.status(status).header(HttpHeaders.CONNECTION, "close").body(body);
+    }
+}
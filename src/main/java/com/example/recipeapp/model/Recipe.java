@@ -3,16 +3,37 @@ package com.example.recipeapp.model;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.NotBlank;
 import lombok.Data;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import java.util.HashSet;
 import java.util.Set;
 
 @Entity
 @Data
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
+@Table(indexes = @Index(name = "idx_recipe_image_path", columnList = "imagePath"))
 public class Recipe {
 
+    // 1レシピに設定できるカテゴリ数の上限
+    public static final int MAX_CATEGORIES = 2;
+
+    // ID 採番テーブルから一度に確保する ID の数（JDBC のバッチ INSERT を有効にするため IDENTITY は使わない）
+    public static final int ID_ALLOCATION_SIZE = 50;
+    public static final String ID_GENERATOR_TABLE = "recipe_id_generator";
+    public static final String ID_GENERATOR_SEGMENT = "recipe";
+
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "recipe_id")
+    @TableGenerator(
+            name = "recipe_id",
+            table = ID_GENERATOR_TABLE,
+            pkColumnName = "sequence_name",
+            valueColumnName = "next_val",
+            pkColumnValue = ID_GENERATOR_SEGMENT,
+            allocationSize = ID_ALLOCATION_SIZE
+    )
     private Long id;
 
     @NotBlank(message = "タイトルは必須です")
@@ -34,6 +55,7 @@ public class Recipe {
 
     // カテゴリ - 修正点: cascade設定とfetch戦略の明示
     @ElementCollection(fetch = FetchType.EAGER)
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
     @CollectionTable(
             name = "recipe_category",
             joinColumns = @JoinColumn(name = "recipe_id")
@@ -43,6 +65,11 @@ public class Recipe {
 
     private String imagePath;
 
+    // 一覧カード用・詳細用に縮小した派生画像（非同期で生成、未生成なら null）
+    private String cardImagePath;
+
+    private String detailImagePath;
+
     // カテゴリ用のヘルパーメソッド
     public void addCategory(String category) {
         if (categories == null) {
@@ -1,17 +1,92 @@
 package com.example.recipeapp.repository;
 
 import com.example.recipeapp.model.Recipe;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
 
-public interface RecipeRepository extends JpaRepository<Recipe, Long> {
+public interface RecipeRepository extends JpaRepository<Recipe, Long>, RecipeRepositoryCustom {
 
+    // お気に入りで絞り込むクエリのキャッシュリージョン。お気に入りの切り替えはテーブル単位の無効化を
+    // 避けたネイティブ SQL で書くので、切り替えのたびにこのリージョンだけを捨てる
+    String FAVORITES_QUERY_REGION = "recipe-favorites-query-results";
+
+    // 結果はクエリキャッシュに載せる（recipe テーブルへの書き込みで自動的に無効化される）。
+    // 一覧の読み取りは readOnly にして、読み取り用 DB があればそちらで行う
+    @Transactional(readOnly = true)
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = FAVORITES_QUERY_REGION)
+    })
     List<Recipe> findByFavoriteTrue();
 
-    @Query("SELECT r FROM Recipe r WHERE :category MEMBER OF r.categories")
-    List<Recipe> findByCategory(@Param("category") String category);
+    // キーセットページング（id が cursor より大きいものを id 昇順で取得）
+    @Transactional(readOnly = true)
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
+    Slice<Recipe> findByIdGreaterThanOrderByIdAsc(Long cursor, Pageable pageable);
+
+    @Transactional(readOnly = true)
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = FAVORITES_QUERY_REGION)
+    })
+    Slice<Recipe> findByFavoriteTrueAndIdGreaterThanOrderByIdAsc(Long cursor, Pageable pageable);
+
+    // 起動時の索引読み込み用の全件走査（一度しか読まないので二次キャッシュに載せない）
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHE_MODE, value = "IGNORE"))
+    @Query("SELECT r FROM Recipe r WHERE r.id > :cursor ORDER BY r.id ASC")
+    Slice<Recipe> scanAfter(@Param("cursor") Long cursor, Pageable pageable);
+
+    // エクスポート用の全件ストリーム（呼び出し側でトランザクション内で消費し、close すること）
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_MODE, value = "IGNORE")
+    })
+    @Query("SELECT r FROM Recipe r LEFT JOIN FETCH r.categories ORDER BY r.id ASC")
+    Stream<Recipe> streamAllOrderById();
+
+    boolean existsByImagePath(String imagePath);
+
+    // 孤立画像の GC 用：paths のうちレシピから参照されているもの
+    @Query("SELECT DISTINCT r.imagePath FROM Recipe r WHERE r.imagePath IN :paths")
+    Set<String> findReferencedImagePaths(@Param("paths") Collection<String> paths);
+
+    @Query("SELECT DISTINCT r.cardImagePath FROM Recipe r WHERE r.cardImagePath IN :paths")
+    Set<String> findReferencedCardImagePaths(@Param("paths") Collection<String> paths);
+
+    @Query("SELECT DISTINCT r.detailImagePath FROM Recipe r WHERE r.detailImagePath IN :paths")
+    Set<String> findReferencedDetailImagePaths(@Param("paths") Collection<String> paths);
+
+    // 全件削除ジョブ用：id の範囲 (from, to] ごとにまとめて削除する
+    @Query("SELECT r.id FROM Recipe r WHERE r.id > :cursor ORDER BY r.id ASC")
+    List<Long> findIdsAfter(@Param("cursor") Long cursor, Pageable pageable);
+
+    @Query("SELECT DISTINCT r.imagePath FROM Recipe r WHERE r.id > :from AND r.id <= :to AND r.imagePath IS NOT NULL")
+    List<String> findImagePathsInRange(@Param("from") Long from, @Param("to") Long to);
+
+    @Modifying
+    @Query(value = "DELETE FROM recipe_category WHERE recipe_id > :from AND recipe_id <= :to", nativeQuery = true)
+    int deleteCategoriesInRange(@Param("from") Long from, @Param("to") Long to);
+
+    @Modifying
+    @Query(value = "DELETE FROM recipe WHERE id > :from AND id <= :to", nativeQuery = true)
+    int deleteInRange(@Param("from") Long from, @Param("to") Long to);
+
+    @Query("SELECT r.favorite FROM Recipe r WHERE r.id = :id")
+    Optional<Boolean> findFavoriteById(@Param("id") Long id);
 
 }
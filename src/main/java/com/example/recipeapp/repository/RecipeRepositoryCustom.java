@@ -0,0 +1,21 @@
+package com.example.recipeapp.repository;
+
+import com.example.recipeapp.model.Recipe;
+
+import java.util.Collection;
+import java.util.List;
+
+public interface RecipeRepositoryCustom {
+
+    // ID の並び順どおりにレシピを取得する（見つからない ID は除く）
+    List<Recipe> findAllByIdInOrder(List<Long> ids);
+
+    // お気に入りを1文で反転する（読み込み・更新の間に他のリクエストが割り込まない）
+    int toggleFavorite(Long id);
+
+    // まとめて反映するお気に入りの書き込み
+    int updateFavorite(Collection<Long> ids, boolean favorite);
+
+    // 派生画像のパスを記録（生成中に元画像が差し替えられていたら更新しない）
+    int updateDerivativePaths(Long id, String imagePath, String cardImagePath, String detailImagePath);
+}
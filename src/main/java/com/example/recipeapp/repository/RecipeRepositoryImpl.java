@@ -0,0 +1,112 @@
+package com.example.recipeapp.repository;
+
+import com.example.recipeapp.model.Recipe;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.query.NativeQuery;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+
+public class RecipeRepositoryImpl implements RecipeRepositoryCustom {
+
+    // multiLoad は二次キャッシュにあるレシピをキャッシュから返し、残りだけを IN 句でまとめて読む
+    private static final int BATCH_SIZE = 100;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<Recipe> findAllByIdInOrder(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        Session session = entityManager.unwrap(Session.class);
+        // キャッシュモードを明示しないと multiLoad は二次キャッシュを見ずに全件を DB から読む
+        return session.byMultipleIds(Recipe.class)
+                .with(session.getCacheMode())
+                .withBatchSize(BATCH_SIZE)
+                .multiLoad(ids)
+                .stream()
+                .filter(Objects::nonNull)
+                .toList();
+    }
+
+    @Override
+    @Transactional
+    public int toggleFavorite(Long id) {
+        int updated = nativeUpdate("UPDATE recipe SET favorite = CASE WHEN favorite = TRUE THEN FALSE ELSE TRUE END WHERE id = :id")
+                .setParameter("id", id)
+                .executeUpdate();
+        evictAfterCommit(List.of(id), true);
+        return updated;
+    }
+
+    @Override
+    @Transactional
+    public int updateFavorite(Collection<Long> ids, boolean favorite) {
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        int updated = nativeUpdate("UPDATE recipe SET favorite = :favorite WHERE id IN (:ids)")
+                .setParameter("favorite", favorite)
+                .setParameterList("ids", ids)
+                .executeUpdate();
+        evictAfterCommit(List.copyOf(ids), true);
+        return updated;
+    }
+
+    @Override
+    @Transactional
+    public int updateDerivativePaths(Long id, String imagePath, String cardImagePath, String detailImagePath) {
+        int updated = nativeUpdate("UPDATE recipe SET card_image_path = :cardImagePath, detail_image_path = :detailImagePath "
+                + "WHERE id = :id AND image_path = :imagePath")
+                .setParameter("cardImagePath", cardImagePath)
+                .setParameter("detailImagePath", detailImagePath)
+                .setParameter("id", id)
+                .setParameter("imagePath", imagePath)
+                .executeUpdate();
+        // 派生画像のパスはクエリキャッシュの結果（ID の一覧など）を変えないので、レシピ本体だけ追い出す
+        evictAfterCommit(List.of(id), false);
+        return updated;
+    }
+
+    // JPQL の一括 UPDATE は Recipe の二次キャッシュ全体とクエリキャッシュを捨ててしまうので、
+    // 同期するテーブルを空にしたネイティブ SQL で更新し、追い出しは対象のレシピだけにする
+    private NativeQuery<?> nativeUpdate(String sql) {
+        NativeQuery<?> query = entityManager.createNativeQuery(sql).unwrap(NativeQuery.class);
+        query.addSynchronizedQuerySpace("");
+        return query;
+    }
+
+    // お気に入りはお気に入り一覧のクエリキャッシュの結果も変えるので、favorites ならそのリージョンも捨てる
+    // （ほかの一覧のクエリキャッシュは ID だけを持つので、レシピ本体を追い出せば足りる）
+    private void evictAfterCommit(List<Long> ids, boolean favorites) {
+        org.hibernate.Cache cache = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getCache();
+        Runnable evict = () -> {
+            for (Long id : ids) {
+                cache.evictEntityData(Recipe.class, id);
+            }
+            if (favorites) {
+                cache.evictQueryRegion(RecipeRepository.FAVORITES_QUERY_REGION);
+            }
+        };
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    evict.run();
+                }
+            });
+        } else {
+            evict.run();
+        }
+    }
+}
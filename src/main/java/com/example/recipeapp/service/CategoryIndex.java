@@ -0,0 +1,179 @@
+package com.example.recipeapp.service;
+
+import com.example.recipeapp.model.Recipe;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * カテゴリ辞書とカテゴリ別のビットセット索引。
+ * カテゴリ名に小さな整数 ID を振り、カテゴリごとにレシピ ID のビットセットを持つ。
+ * カテゴリ一覧ページや複数カテゴリの AND/OR 絞り込みはビットセットの積・和で求め、
+ * DB には該当ページのレシピだけを ID で問い合わせる。
+ * 辞書は標準カテゴリで初期化し、既存データ・インポートで現れた名前を追加していく（削除はしない）。
+ */
+@Service
+public class CategoryIndex {
+
+    // recipe_form.html の選択肢と同じ並び
+    public static final List<String> STANDARD_CATEGORIES = List.of(
+            "和食", "洋食", "中華", "イタリアン", "フレンチ", "韓国料理", "麺類", "パスタ", "揚げ物",
+            "肉料理", "魚料理", "たまご料理", "スープ", "サラダ", "おつまみ", "デザート", "お菓子",
+            "時短", "ヘルシー", "高タンパク", "作り置き", "朝食", "ランチ", "ディナー", "夜食",
+            "弁当", "パーティー料理", "その他"
+    );
+
+    /**
+     * 絞り込み結果の1ページ分。ids は ID 昇順、total は条件に一致する全件数。
+     */
+    public record CategoryPage(List<Long> ids, boolean hasNext, int total) {
+    }
+
+    private final Map<String, Integer> idsByName = new HashMap<>();
+    private final List<String> names = new ArrayList<>();
+    private final List<BitSet> recipesByCategory = new ArrayList<>();
+
+    public CategoryIndex() {
+        STANDARD_CATEGORIES.forEach(this::register);
+    }
+
+    @EventListener
+    @Order(RecipeChangedEvent.INDEX_ORDER)
+    public void onRecipeChanged(RecipeChangedEvent event) {
+        switch (event.type()) {
+            case LOADED, SAVED -> put(event.recipe());
+            case DELETED -> remove(event.recipeId());
+            case CLEARED -> clear();
+        }
+    }
+
+    public synchronized void put(Recipe recipe) {
+        if (recipe == null || recipe.getId() == null) {
+            return;
+        }
+        int bit = toBit(recipe.getId());
+        // カテゴリ数は少ないので、変更前のカテゴリを覚えておかず全ビットセットから外す
+        for (BitSet recipes : recipesByCategory) {
+            recipes.clear(bit);
+        }
+        if (recipe.getCategories() != null) {
+            for (String category : recipe.getCategories()) {
+                recipesByCategory.get(register(category)).set(bit);
+            }
+        }
+    }
+
+    public synchronized void remove(Long recipeId) {
+        if (recipeId == null) {
+            return;
+        }
+        int bit = toBit(recipeId);
+        for (BitSet recipes : recipesByCategory) {
+            recipes.clear(bit);
+        }
+    }
+
+    // 辞書は残し、レシピの所属だけを消す
+    public synchronized void clear() {
+        for (BitSet recipes : recipesByCategory) {
+            recipes.clear();
+        }
+    }
+
+    /**
+     * 辞書に登録されたカテゴリ名を返す（前後の空白は無視）。未登録・空なら null。
+     */
+    public synchronized String canonicalName(String name) {
+        if (name == null) {
+            return null;
+        }
+        Integer id = idsByName.get(name.trim());
+        return id != null ? names.get(id) : null;
+    }
+
+    /**
+     * レシピが属するカテゴリ名（索引の現在の状態）。
+     */
+    public synchronized Set<String> categoriesOf(Long recipeId) {
+        Set<String> categories = new HashSet<>();
+        if (recipeId == null) {
+            return categories;
+        }
+        int bit = toBit(recipeId);
+        for (int id = 0; id < recipesByCategory.size(); id++) {
+            if (recipesByCategory.get(id).get(bit)) {
+                categories.add(names.get(id));
+            }
+        }
+        return categories;
+    }
+
+    /**
+     * カテゴリ名の辞書 ID。未登録なら -1。
+     */
+    public synchronized int idOf(String name) {
+        return name != null ? idsByName.getOrDefault(name.trim(), -1) : -1;
+    }
+
+    /**
+     * categories に指定したカテゴリで絞り込み、ID が cursor より大きいものを昇順に最大 limit 件返す。
+     * matchAll が true ならすべてのカテゴリを含むもの（AND）、false ならいずれかを含むもの（OR）。
+     */
+    public synchronized CategoryPage page(Collection<String> categories, boolean matchAll, long cursor, int limit) {
+        BitSet matched = null;
+        for (String category : categories) {
+            int id = idOf(category);
+            if (id < 0) {
+                if (matchAll) {
+                    return new CategoryPage(List.of(), false, 0);
+                }
+                continue;
+            }
+            BitSet recipes = recipesByCategory.get(id);
+            if (categories.size() == 1) {
+                // 単一カテゴリはコピーせずにそのまま走査する
+                matched = recipes;
+            } else if (matched == null) {
+                matched = (BitSet) recipes.clone();
+            } else if (matchAll) {
+                matched.and(recipes);
+            } else {
+                matched.or(recipes);
+            }
+        }
+        if (matched == null) {
+            return new CategoryPage(List.of(), false, 0);
+        }
+
+        List<Long> ids = new ArrayList<>(Math.min(limit, 64));
+        // ビットセットの添字の範囲を超えるカーソルより後ろにはレシピが無い
+        int bit = cursor >= Integer.MAX_VALUE ? -1 : matched.nextSetBit(cursor < 0 ? 0 : toBit(cursor + 1));
+        while (bit >= 0 && ids.size() < limit) {
+            ids.add((long) bit);
+            bit = bit < Integer.MAX_VALUE ? matched.nextSetBit(bit + 1) : -1;
+        }
+        return new CategoryPage(ids, bit >= 0, matched.cardinality());
+    }
+
+    private int register(String name) {
+        return idsByName.computeIfAbsent(name, key -> {
+            names.add(key);
+            recipesByCategory.add(new BitSet());
+            return names.size() - 1;
+        });
+    }
+
+    // ビットセットの添字に使うため、レシピ ID は int の範囲に収まる前提
+    private static int toBit(long recipeId) {
+        return Math.toIntExact(recipeId);
+    }
+}
@@ -2,31 +2,91 @@ package com.example.recipeapp.service;
 
 import com.example.recipeapp.model.User;
 import com.example.recipeapp.repository.UserRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.userdetails.*;
 import org.springframework.stereotype.Service;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 
+import java.time.Duration;
 import java.util.Collections;
 
+/**
+ * ログイン用のユーザー読み込み。
+ * ユーザー情報はユーザー名ごとにキャッシュし、登録・パスワード更新時に破棄する。
+ * ログイン成功時に保存済みハッシュのコストが設定より低ければ、
+ * DaoAuthenticationProvider から updatePassword が呼ばれて再ハッシュしたものを保存する。
+ */
 @Service
-public class CustomUserDetailsService implements UserDetailsService {
+public class CustomUserDetailsService implements UserDetailsService, UserDetailsPasswordService {
+
+    private static final Logger log = LoggerFactory.getLogger(CustomUserDetailsService.class);
+
+    // キャッシュする内容（UserDetails は認証後に資格情報が消去されるため、毎回作り直す）
+    private record CachedUser(String username, String password, String role) {
+    }
 
     @Autowired
     private UserRepository userRepository;
 
+    private final Cache<String, CachedUser> users;
+
+    public CustomUserDetailsService(@Value("${recipeapp.security.user-cache.max-entries:10000}") long maxEntries,
+                                    @Value("${recipeapp.security.user-cache.ttl:10m}") Duration ttl) {
+        this.users = Caffeine.newBuilder()
+                .maximumSize(maxEntries)
+                .expireAfterWrite(ttl)
+                .build();
+    }
+
     @Override
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
-        User user = userRepository.findByUsername(username);
+        CachedUser cached = users.getIfPresent(username);
+        if (cached == null) {
+            User user = userRepository.findByUsername(username);
+
+            if (user == null) {
+                throw new UsernameNotFoundException("ユーザーが見つかりません: " + username);
+            }
 
-        if (user == null) {
-            throw new UsernameNotFoundException("ユーザーが見つかりません: " + username);
+            cached = new CachedUser(user.getUsername(), user.getPassword(), user.getRole());
+            users.put(username, cached);
         }
 
         return new org.springframework.security.core.userdetails.User(
-                user.getUsername(),
-                user.getPassword(),
-                Collections.singleton(new SimpleGrantedAuthority(user.getRole()))
+                cached.username(),
+                cached.password(),
+                Collections.singleton(new SimpleGrantedAuthority(cached.role()))
         );
     }
-}
\ No newline at end of file
+
+    /**
+     * 保存済みハッシュのコストが設定より低いとき、ログイン成功時に再ハッシュしたパスワードを保存する。
+     */
+    @Override
+    public UserDetails updatePassword(UserDetails userDetails, String newPassword) {
+        User user = userRepository.findByUsername(userDetails.getUsername());
+        if (user != null) {
+            user.setPassword(newPassword);
+            userRepository.save(user);
+            log.info("パスワードハッシュを更新しました: {}", user.getUsername());
+        }
+        evict(userDetails.getUsername());
+        return org.springframework.security.core.userdetails.User.withUserDetails(userDetails)
+                .password(newPassword)
+                .build();
+    }
+
+    /**
+     * ユーザーの登録・更新後に呼び、キャッシュから破棄する。
+     */
+    public void evict(String username) {
+        if (username != null) {
+            users.invalidate(username);
+        }
+    }
+}
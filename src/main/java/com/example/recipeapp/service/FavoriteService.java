@@ -0,0 +1,201 @@
+package com.example.recipeapp.service;
+
+import com.example.recipeapp.repository.RecipeRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * お気に入りの切り替え。
+ * 通常は UPDATE 1文で反転してから値を読み直す（エンティティを読み込まないので categories の結合もなく、
+ * 同時に押されても行ロックで順番に反転される）。
+ * recipeapp.favorites.coalesce-interval を設定すると、切り替えは索引上で即座に反映して応答し、
+ * DB への書き込みは間隔ごとにまとめて行う。その間、DB から読む一覧（お気に入り一覧など）は最大で
+ * 間隔ぶん古い状態になり、反映前にアプリが異常終了すると未反映の切り替えは失われる。
+ */
+@Service
+public class FavoriteService {
+
+    private static final Logger log = LoggerFactory.getLogger(FavoriteService.class);
+
+    // IN 句に並べる ID の上限
+    private static final int FLUSH_CHUNK_SIZE = 500;
+
+    private static final int TOGGLE_LOCK_STRIPES = 64;
+
+    @Autowired
+    private RecipeRepository recipeRepository;
+
+    @Autowired
+    private RecipeSearchIndex recipeSearchIndex;
+
+    @Autowired
+    private RecipeDataVersion recipeDataVersion;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final TransactionTemplate transactionTemplate;
+    private final Duration coalesceInterval;
+
+    // まだ DB に書き込んでいない切り替え（レシピ ID → 新しい値）
+    private final Map<Long, Boolean> pending = new ConcurrentHashMap<>();
+
+    private ScheduledExecutorService flusher;
+
+    // toggle() のコミットと通知を、レシピ ID ごと（を束ねた単位）に直列化する
+    private final ReentrantLock[] toggleLocks = new ReentrantLock[TOGGLE_LOCK_STRIPES];
+
+    public FavoriteService(PlatformTransactionManager transactionManager,
+                           @Value("${recipeapp.favorites.coalesce-interval:0}") Duration coalesceInterval) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        // execute() から戻った時点でコミット済みになるよう、呼び出し側のトランザクションには参加しない
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.coalesceInterval = coalesceInterval;
+        for (int i = 0; i < toggleLocks.length; i++) {
+            toggleLocks[i] = new ReentrantLock();
+        }
+    }
+
+    @PostConstruct
+    void start() {
+        if (!isCoalescing()) {
+            return;
+        }
+        long millis = Math.max(1, coalesceInterval.toMillis());
+        flusher = Executors.newSingleThreadScheduledExecutor(
+                Thread.ofPlatform().name("favorite-flush").daemon(true).factory());
+        flusher.scheduleWithFixedDelay(this::flush, millis, millis, TimeUnit.MILLISECONDS);
+        Gauge.builder("recipeapp.favorites.pending", pending, Map::size).register(meterRegistry);
+        log.info("お気に入りの書き込みを {}ms ごとにまとめて反映します", millis);
+    }
+
+    public boolean isCoalescing() {
+        return coalesceInterval != null && coalesceInterval.isPositive();
+    }
+
+    /**
+     * お気に入りを反転し、新しい値を返す。レシピが無ければ空。
+     */
+    public Optional<Boolean> toggle(Long id) {
+        if (isCoalescing()) {
+            Optional<Boolean> favorite = toggleCoalesced(id);
+            if (favorite.isPresent()) {
+                return favorite;
+            }
+            // 索引に無い（起動直後など）ときは DB で直接反転する
+        }
+        // 同じレシピの切り替えは DB の行ロックで順番に反転されるが、通知はコミット後なので
+        // コミットから通知までを同じロックで囲み、索引にも DB と同じ順で届くようにする
+        ReentrantLock lock = toggleLocks[Math.floorMod(id.hashCode(), toggleLocks.length)];
+        lock.lock();
+        try {
+            Optional<Boolean> favorite = transactionTemplate.execute(status -> {
+                if (recipeRepository.toggleFavorite(id) == 0) {
+                    return Optional.<Boolean>empty();
+                }
+                return recipeRepository.findFavoriteById(id);
+            });
+            // 索引への通知はコミットしてから行い、ロールバックされた切り替えが索引に残らないようにする。
+            // afterCommit の中で通知すると RecipeDataVersion がコミット後に予約する版数の更新が実行されないので、
+            // 独立したトランザクションが終わって戻ってから通知する
+            favorite.ifPresent(value -> eventPublisher.publishEvent(RecipeChangedEvent.favoriteChanged(id, value)));
+            return favorite;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private synchronized Optional<Boolean> toggleCoalesced(Long id) {
+        // 索引は未反映の切り替えも含めた最新の状態を持っている
+        Boolean current = recipeSearchIndex.isFavorite(id);
+        if (current == null) {
+            return Optional.empty();
+        }
+        boolean favorite = !current;
+        pending.put(id, favorite);
+        eventPublisher.publishEvent(RecipeChangedEvent.favoriteChanged(id, favorite));
+        return Optional.of(favorite);
+    }
+
+    /**
+     * 編集画面からの保存・削除は未反映の切り替えより新しいので、そちらを優先する。
+     */
+    @EventListener
+    public void onRecipeChanged(RecipeChangedEvent event) {
+        switch (event.type()) {
+            case SAVED, DELETED -> pending.remove(event.recipeId());
+            case CLEARED -> pending.clear();
+            default -> {
+            }
+        }
+    }
+
+    /**
+     * 未反映の切り替えを値ごとにまとめて書き込む。書き込み中に再度切り替えられたものは次回に回す。
+     */
+    void flush() {
+        if (pending.isEmpty()) {
+            return;
+        }
+        Map<Long, Boolean> batch = new HashMap<>(pending);
+        List<Long> on = new ArrayList<>();
+        List<Long> off = new ArrayList<>();
+        batch.forEach((id, favorite) -> (favorite ? on : off).add(id));
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                update(on, true);
+                update(off, false);
+            });
+        } catch (RuntimeException e) {
+            // 残したまま次回に再試行する
+            log.warn("お気に入りの反映に失敗しました（{}件）", batch.size(), e);
+            return;
+        }
+        batch.forEach(pending::remove);
+        // DB から読む API（エクスポートなど）の ETag は、反映が見えるようになったここで改めて変える
+        recipeDataVersion.touch(batch.keySet());
+        log.debug("お気に入りを反映しました: on={}, off={}", on.size(), off.size());
+    }
+
+    private void update(List<Long> ids, boolean favorite) {
+        for (int from = 0; from < ids.size(); from += FLUSH_CHUNK_SIZE) {
+            recipeRepository.updateFavorite(ids.subList(from, Math.min(ids.size(), from + FLUSH_CHUNK_SIZE)), favorite);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        if (flusher != null) {
+            flusher.shutdown();
+            flusher.awaitTermination(10, TimeUnit.SECONDS);
+            flush();
+        }
+    }
+}
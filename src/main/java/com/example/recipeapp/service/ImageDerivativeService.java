@@ -0,0 +1,271 @@
+package com.example.recipeapp.service;
+
+import com.example.recipeapp.model.Recipe;
+import com.example.recipeapp.repository.RecipeRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * アップロード画像から一覧カード用・詳細用の縮小画像を生成する。
+ * 生成は仮想スレッドモードなら仮想スレッド、そうでなければ専用のプラットフォームスレッドで行い、
+ * 同時に処理する枚数はセマフォで制限する（10MB クラスの画像のデコードは CPU とメモリを多く使うため）。
+ * 元画像はそのまま残し、派生画像は uploads/derivatives/ に JPEG で保存する。
+ * 派生画像は元画像のダイジェストで命名されるため、同じ画像なら生成済みのものを共有する。
+ * デコード前にヘッダーから縦横のピクセル数を読み、大きい画像は間引いて読み込む。
+ * 読めない形式や大きすぎる画像は派生画像のパスに元画像を記録し、生成をやり直さない。
+ */
+@Service
+public class ImageDerivativeService {
+
+    private static final Logger log = LoggerFactory.getLogger(ImageDerivativeService.class);
+
+    public static final String CARD_VARIANT = "card";
+    public static final String DETAIL_VARIANT = "detail";
+
+    // 長辺ではなく横幅の上限（カードは横長グリッド表示のため）
+    private static final int CARD_WIDTH = 480;
+    private static final int DETAIL_WIDTH = 1200;
+    private static final float JPEG_QUALITY = 0.82f;
+
+    // これを超える画像は間引いて読み込む（TYPE_INT_ARGB で約 64MB）
+    private static final long MAX_DECODED_PIXELS = 4000L * 4000;
+    // これを超える画像は生成しない（間引いても圧縮データ全体の展開に時間がかかるため）
+    private static final long MAX_SOURCE_PIXELS = 200_000_000L;
+
+    @Autowired
+    private RecipeRepository recipeRepository;
+
+    @Autowired
+    private ImageStore imageStore;
+
+    @Autowired
+    private RecipeDataVersion recipeDataVersion;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private Counter failures;
+
+    private final Semaphore permits;
+    private final ExecutorService executor;
+
+    // 同じレシピの生成要求が重複して積まれないようにする
+    private final Set<Long> inFlight = ConcurrentHashMap.newKeySet();
+
+    public ImageDerivativeService(@Value("${recipeapp.images.derivative-concurrency:2}") int concurrency,
+                                  @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+        this.permits = new Semaphore(Math.max(1, concurrency));
+        this.executor = virtualThreads
+                ? Executors.newVirtualThreadPerTaskExecutor()
+                : Executors.newFixedThreadPool(Math.max(1, concurrency),
+                        Thread.ofPlatform().name("image-derivative-", 1).daemon(true).factory());
+    }
+
+    @PostConstruct
+    void registerMeters() {
+        failures = ImageStore.fileFailureCounter(meterRegistry, "derivative");
+    }
+
+    /**
+     * 画像があるのに派生画像が未生成のレシピを生成待ちに積む。
+     * 新規登録・画像差し替え（コントローラーで派生画像のパスをクリア）・
+     * 起動時の読み込みのいずれもこのイベントで拾う。
+     */
+    @EventListener
+    public void onRecipeChanged(RecipeChangedEvent event) {
+        if (event.type() != RecipeChangedEvent.Type.LOADED && event.type() != RecipeChangedEvent.Type.SAVED) {
+            return;
+        }
+        Recipe recipe = event.recipe();
+        if (recipe != null && recipe.getImagePath() != null && recipe.getCardImagePath() == null) {
+            submit(recipe.getId(), recipe.getImagePath());
+        }
+    }
+
+    public void submit(Long recipeId, String imagePath) {
+        if (recipeId == null || imagePath == null || !inFlight.add(recipeId)) {
+            return;
+        }
+        executor.submit(() -> {
+            try {
+                permits.acquire();
+                try {
+                    generate(recipeId, imagePath);
+                } finally {
+                    permits.release();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (Exception e) {
+                failures.increment();
+                log.warn("派生画像の生成エラー (ID: {})", recipeId, e);
+            } finally {
+                inFlight.remove(recipeId);
+            }
+        });
+    }
+
+    private void generate(Long recipeId, String imagePath) throws IOException {
+        Path source = imageStore.resolve(imagePath);
+        if (!Files.exists(source)) {
+            return;
+        }
+        String cardPath = imageStore.derivativePath(imagePath, CARD_VARIANT);
+        String detailPath = imageStore.derivativePath(imagePath, DETAIL_VARIANT);
+        Path cardFile = imageStore.resolve(cardPath);
+        Path detailFile = imageStore.resolve(detailPath);
+
+        // 同じ画像の派生画像が既にあれば再生成しない
+        if (!Files.exists(cardFile) || !Files.exists(detailFile)) {
+            BufferedImage original = decode(source);
+            if (original == null) {
+                // ImageIO が読めない形式（webp など）や大きすぎる画像は元画像のまま表示する。
+                // 元画像のパスを記録しておき、読み込み・保存のたびにデコードし直さないようにする
+                log.info("派生画像を生成できないため元画像を使います (ID: {}): {}", recipeId, imagePath);
+                cardPath = imagePath;
+                detailPath = imagePath;
+            } else {
+                Files.createDirectories(cardFile.getParent());
+                writeJpeg(scaleToWidth(original, CARD_WIDTH), cardFile);
+                writeJpeg(scaleToWidth(original, DETAIL_WIDTH), detailFile);
+            }
+        }
+
+        int updated = recipeRepository.updateDerivativePaths(recipeId, imagePath, cardPath, detailPath);
+        if (updated == 0) {
+            // 生成中にレシピが削除された、または画像が差し替えられた
+            imageStore.cleanupIfUnreferenced(imagePath);
+        } else {
+            // 一覧・検索の JSON に派生画像のパスが載るので ETag を変える
+            recipeDataVersion.touch(List.of(recipeId));
+        }
+    }
+
+    // ヘッダーの縦横から間引き量を決めてデコードする。読めない形式や MAX_SOURCE_PIXELS を超える画像は null
+    private static BufferedImage decode(Path source) throws IOException {
+        try (ImageInputStream in = ImageIO.createImageInputStream(source.toFile())) {
+            Iterator<ImageReader> readers = in != null ? ImageIO.getImageReaders(in) : null;
+            if (readers == null || !readers.hasNext()) {
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(in, true, true);
+                long pixels = (long) reader.getWidth(0) * reader.getHeight(0);
+                if (pixels > MAX_SOURCE_PIXELS) {
+                    return null;
+                }
+                ImageReadParam param = reader.getDefaultReadParam();
+                int step = (int) Math.ceil(Math.sqrt((double) pixels / MAX_DECODED_PIXELS));
+                if (step > 1) {
+                    param.setSourceSubsampling(step, step, 0, 0);
+                }
+                return reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    // 縮小は半分ずつ段階的に行い、一度に大きく縮めたときのジャギーを避ける
+    private static BufferedImage scaleToWidth(BufferedImage source, int maxWidth) {
+        BufferedImage current = toRgb(source);
+        if (current.getWidth() <= maxWidth) {
+            return current;
+        }
+        int targetHeight = Math.max(1, Math.round((float) source.getHeight() * maxWidth / source.getWidth()));
+        int width = current.getWidth();
+        int height = current.getHeight();
+        do {
+            width = Math.max(maxWidth, width / 2);
+            height = Math.max(targetHeight, height / 2);
+            BufferedImage step = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+            Graphics2D g = step.createGraphics();
+            try {
+                g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+                g.drawImage(current, 0, 0, width, height, null);
+            } finally {
+                g.dispose();
+            }
+            current = step;
+        } while (width > maxWidth);
+        return current;
+    }
+
+    // 透過 PNG などは白背景の RGB に変換（JPEG はアルファを持てない）
+    private static BufferedImage toRgb(BufferedImage source) {
+        if (source.getType() == BufferedImage.TYPE_INT_RGB) {
+            return source;
+        }
+        BufferedImage rgb = new BufferedImage(source.getWidth(), source.getHeight(), BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = rgb.createGraphics();
+        try {
+            g.setColor(Color.WHITE);
+            g.fillRect(0, 0, source.getWidth(), source.getHeight());
+            g.drawImage(source, 0, 0, null);
+        } finally {
+            g.dispose();
+        }
+        return rgb;
+    }
+
+    // 一時ファイルに書いてから置き換え、書きかけのファイルが配信されないようにする
+    private static void writeJpeg(BufferedImage image, Path target) throws IOException {
+        Path temp = Files.createTempFile(target.getParent(), "tmp_", ".jpg");
+        try {
+            ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+            try (ImageOutputStream out = ImageIO.createImageOutputStream(temp.toFile())) {
+                writer.setOutput(out);
+                ImageWriteParam param = writer.getDefaultWriteParam();
+                param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+                param.setCompressionQuality(JPEG_QUALITY);
+                writer.write(null, new IIOImage(image, null, null), param);
+            } finally {
+                writer.dispose();
+            }
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        executor.shutdown();
+        executor.awaitTermination(10, TimeUnit.SECONDS);
+    }
+}
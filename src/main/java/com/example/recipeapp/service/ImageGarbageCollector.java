@@ -0,0 +1,259 @@
+package com.example.recipeapp.service;
+
+import com.example.recipeapp.repository.RecipeRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * uploads ディレクトリの孤立画像 GC。
+ * DirectoryStream で1件ずつ走査し、更新から猶予期間を過ぎたファイルを batch-size 件ずつ
+ * DB の imagePath（派生画像は cardImagePath / detailImagePath）とまとめて照合して、
+ * どこからも参照されていないものを削除する。書き込み途中で残った一時ファイルも削除する。
+ * リクエストの I/O と競合しないよう、走査は優先度の低い1スレッドで max-files-per-second 件/秒までに抑える。
+ * 削除した容量は recipeapp.files.reclaimed に記録する。
+ */
+@Service
+public class ImageGarbageCollector {
+
+    private static final Logger log = LoggerFactory.getLogger(ImageGarbageCollector.class);
+
+    // ImageStore.store() と ImageDerivativeService の一時ファイル
+    private static final String UPLOAD_TEMP_PREFIX = "upload_";
+    private static final String UPLOAD_TEMP_SUFFIX = ".tmp";
+    private static final String DERIVATIVE_TEMP_PREFIX = "tmp_";
+
+    /**
+     * 1回の GC の結果。
+     */
+    public record Result(long scannedFiles, long deletedFiles, long reclaimedBytes, int releasedUploads,
+                         long elapsedMillis, Instant finishedAt) {
+    }
+
+    private record Candidate(Path file, String path, long size) {
+    }
+
+    // 1回の実行中の集計
+    private static final class Tally {
+        long scanned;
+        long deleted;
+        long reclaimed;
+    }
+
+    @Autowired
+    private ImageStore imageStore;
+
+    @Autowired
+    private RecipeRepository recipeRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final Duration interval;
+    private final Duration gracePeriod;
+    private final Duration pendingTtl;
+    private final int batchSize;
+    private final int maxFilesPerSecond;
+
+    private Counter reclaimedBytes;
+    private ScheduledExecutorService scheduler;
+    private volatile Result lastResult;
+
+    public ImageGarbageCollector(@Value("${recipeapp.images.gc.interval:6h}") Duration interval,
+                                 @Value("${recipeapp.images.gc.grace-period:24h}") Duration gracePeriod,
+                                 @Value("${recipeapp.images.gc.pending-ttl:24h}") Duration pendingTtl,
+                                 @Value("${recipeapp.images.gc.batch-size:200}") int batchSize,
+                                 @Value("${recipeapp.images.gc.max-files-per-second:200}") int maxFilesPerSecond) {
+        this.interval = interval;
+        this.gracePeriod = gracePeriod;
+        this.pendingTtl = pendingTtl;
+        this.batchSize = Math.max(1, batchSize);
+        this.maxFilesPerSecond = Math.max(1, maxFilesPerSecond);
+    }
+
+    @PostConstruct
+    void start() {
+        reclaimedBytes = Counter.builder("recipeapp.files.reclaimed")
+                .description("孤立画像の GC で解放した容量")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        if (interval == null || !interval.isPositive()) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "image-gc");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        });
+        // 起動直後の索引の読み込みと重ならないよう、初回も1間隔後に実行する
+        scheduler.scheduleWithFixedDelay(this::collectQuietly, interval.toMillis(), interval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 直近の GC の結果。まだ実行していなければ null。
+     */
+    public Result getLastResult() {
+        return lastResult;
+    }
+
+    /**
+     * GC を1回実行する（実行中なら終わるまで待つ）。
+     */
+    public synchronized Result collect() throws IOException, InterruptedException {
+        long start = System.nanoTime();
+        int released = imageStore.expirePending(pendingTtl);
+        Instant cutoff = Instant.now().minus(gracePeriod);
+        Tally tally = new Tally();
+
+        Path uploadDir = imageStore.uploadDir();
+        if (Files.isDirectory(uploadDir)) {
+            walk(uploadDir, ImageStore.URL_PREFIX, false, cutoff, tally);
+            Path derivativeDir = uploadDir.resolve(ImageStore.DERIVATIVE_DIR);
+            if (Files.isDirectory(derivativeDir)) {
+                walk(derivativeDir, ImageStore.URL_PREFIX + ImageStore.DERIVATIVE_DIR + "/", true, cutoff, tally);
+            }
+        }
+
+        Result result = new Result(tally.scanned, tally.deleted, tally.reclaimed, released,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), Instant.now());
+        lastResult = result;
+        log.info("孤立画像の GC 完了: 走査 {}件、削除 {}件、解放 {}バイト、保留解除 {}件 ({}ms)",
+                result.scannedFiles(), result.deletedFiles(), result.reclaimedBytes(),
+                result.releasedUploads(), result.elapsedMillis());
+        return result;
+    }
+
+    private void collectQuietly() {
+        try {
+            collect();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            log.warn("孤立画像の GC に失敗しました", e);
+        }
+    }
+
+    private void walk(Path dir, String urlPrefix, boolean derivatives, Instant cutoff, Tally tally)
+            throws IOException, InterruptedException {
+        List<Candidate> batch = new ArrayList<>(batchSize);
+        long windowStart = System.nanoTime();
+        int windowCount = 0;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir)) {
+            for (Path file : files) {
+                BasicFileAttributes attributes;
+                try {
+                    attributes = Files.readAttributes(file, BasicFileAttributes.class);
+                } catch (IOException e) {
+                    // 走査中に削除されたもの
+                    continue;
+                }
+                if (!attributes.isRegularFile()) {
+                    continue;
+                }
+                tally.scanned++;
+                if (attributes.lastModifiedTime().toInstant().isBefore(cutoff)) {
+                    String name = file.getFileName().toString();
+                    if (isTempFile(name, derivatives)) {
+                        deleteTempFile(file, attributes.size(), tally);
+                    } else {
+                        batch.add(new Candidate(file, urlPrefix + name, attributes.size()));
+                    }
+                }
+                if (batch.size() >= batchSize) {
+                    process(batch, derivatives, tally);
+                    batch.clear();
+                }
+                // 走査の速度を max-files-per-second までに抑える
+                if (++windowCount >= batchSize) {
+                    throttle(windowStart, windowCount);
+                    windowStart = System.nanoTime();
+                    windowCount = 0;
+                }
+            }
+        }
+        if (!batch.isEmpty()) {
+            process(batch, derivatives, tally);
+        }
+    }
+
+    private void process(List<Candidate> batch, boolean derivatives, Tally tally) {
+        Set<String> paths = new HashSet<>();
+        for (Candidate candidate : batch) {
+            paths.add(candidate.path());
+        }
+        Set<String> referenced;
+        if (derivatives) {
+            referenced = new HashSet<>(recipeRepository.findReferencedCardImagePaths(paths));
+            referenced.addAll(recipeRepository.findReferencedDetailImagePaths(paths));
+        } else {
+            referenced = recipeRepository.findReferencedImagePaths(paths);
+        }
+        for (Candidate candidate : batch) {
+            long bytes = derivatives
+                    ? imageStore.deleteIfOrphanDerivative(candidate.path(), referenced)
+                    : imageStore.deleteIfOrphan(candidate.path(), referenced);
+            if (bytes >= 0) {
+                tally.deleted++;
+                tally.reclaimed += bytes;
+                reclaimedBytes.increment(bytes);
+                log.debug("孤立画像を削除しました: {} ({}バイト)", candidate.path(), bytes);
+            }
+        }
+    }
+
+    private static boolean isTempFile(String name, boolean derivatives) {
+        return derivatives
+                ? name.startsWith(DERIVATIVE_TEMP_PREFIX)
+                : name.startsWith(UPLOAD_TEMP_PREFIX) && name.endsWith(UPLOAD_TEMP_SUFFIX);
+    }
+
+    // 猶予期間を過ぎた一時ファイルは書き込み中に異常終了した残りなので、照合せずに削除する
+    private void deleteTempFile(Path file, long size, Tally tally) {
+        try {
+            if (Files.deleteIfExists(file)) {
+                tally.deleted++;
+                tally.reclaimed += size;
+                reclaimedBytes.increment(size);
+            }
+        } catch (IOException e) {
+            log.warn("一時ファイル削除エラー: {}", file, e);
+        }
+    }
+
+    private void throttle(long windowStartNanos, int count) throws InterruptedException {
+        long minimumMillis = count * 1000L / maxFilesPerSecond;
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - windowStartNanos);
+        if (elapsedMillis < minimumMillis) {
+            Thread.sleep(minimumMillis - elapsedMillis);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+}
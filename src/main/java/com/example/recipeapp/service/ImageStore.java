@@ -0,0 +1,586 @@
+package com.example.recipeapp.service;
+
+import com.example.recipeapp.model.Recipe;
+import com.example.recipeapp.repository.RecipeRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * コンテンツアドレス方式の画像ストア。
+ * アップロードを SHA-256 で計算しながら一時ファイルへ書き出し、
+ * uploads/&lt;digest&gt;.&lt;拡張子&gt; に一度だけ保存する（同じ画像は共有）。
+ * 参照数は RecipeChangedEvent からレシピごとの imagePath の差分で管理し、
+ * 参照がなくなった画像と派生画像だけを削除する。
+ * 削除前の DB の確認はロックの外で行い、ロック内で参照・保留が増えていないことを確かめてからファイルを消す。
+ * ロック内でファイル操作を行うため、仮想スレッドをキャリアに固定してしまう synchronized ではなく ReentrantLock を使う。
+ * 全件削除（CLEARED）では参照数をリセットするだけで、ファイルは purge() でロックの外から並列に削除する。
+ * 参照数から漏れた孤立ファイルは ImageGarbageCollector が deleteIfOrphan() で定期的に削除する。
+ * アップロードのサイズ・書き込み時間、ファイル削除数・失敗数をメトリクスに記録する。
+ */
+@Service
+public class ImageStore {
+
+    private static final Logger log = LoggerFactory.getLogger(ImageStore.class);
+
+    public static final String URL_PREFIX = "/uploads/";
+    public static final String DERIVATIVE_DIR = "derivatives";
+
+    private static final Set<String> KNOWN_EXTENSIONS = Set.of("jpg", "jpeg", "png", "gif", "webp");
+    private static final String DEFAULT_EXTENSION = "img";
+
+    @Autowired
+    private RecipeRepository recipeRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private DistributionSummary uploadSize;
+    private Timer uploadWriteTime;
+    private Counter filesDeleted;
+    private Counter storeFailures;
+    private Counter deleteFailures;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition purgeFinished = lock.newCondition();
+
+    private final Map<Long, String> imagePathByRecipe = new HashMap<>();
+    private final Map<String, Integer> refCounts = new HashMap<>();
+
+    // 保存済みだがまだレシピに紐づいていない画像（削除対象から外す）
+    private final Map<String, Integer> pending = new HashMap<>();
+
+    // /api/uploads で保存した画像のアップロードしたユーザー（画像 → ユーザー名 → 件数）。
+    // 同じ内容の画像は同じパスになるので、他のユーザーの保留を使ったり取り消したりできないようにする
+    private final Map<String, Map<String, Integer>> pendingOwners = new HashMap<>();
+
+    // 保留になった時刻（expirePending() 用）
+    private final Map<String, Long> pendingSince = new HashMap<>();
+
+    // purge() で削除中の画像（同じ内容の store() は削除が終わるまで待つ）
+    private final Set<String> purging = new HashSet<>();
+
+    @PostConstruct
+    void registerMeters() {
+        uploadSize = DistributionSummary.builder("recipeapp.upload.size")
+                .description("保存したアップロード画像のサイズ")
+                .baseUnit("bytes")
+                .publishPercentileHistogram()
+                .minimumExpectedValue(1024.0)
+                .maximumExpectedValue(20.0 * 1024 * 1024)
+                .register(meterRegistry);
+        uploadWriteTime = Timer.builder("recipeapp.upload.write")
+                .description("アップロード画像のハッシュ計算と書き込みにかかった時間")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        filesDeleted = Counter.builder("recipeapp.files.deleted")
+                .description("参照がなくなって削除した画像ファイル（派生画像を含む）")
+                .register(meterRegistry);
+        storeFailures = fileFailureCounter(meterRegistry, "store");
+        deleteFailures = fileFailureCounter(meterRegistry, "delete");
+    }
+
+    /**
+     * 画像ファイル操作の失敗数（operation タグで store / delete / derivative を区別する）
+     */
+    static Counter fileFailureCounter(MeterRegistry registry, String operation) {
+        return Counter.builder("recipeapp.files.failures")
+                .description("画像ファイル操作の失敗")
+                .tag("operation", operation)
+                .register(registry);
+    }
+
+    /**
+     * アップロードを保存し、"/uploads/..." 形式の URL パスを返す。
+     * 返したパスはレシピの保存（SAVED イベント）か discard() まで削除されない。
+     */
+    public String store(MultipartFile file) throws IOException {
+        try (InputStream in = file.getInputStream()) {
+            return store(in, file.getOriginalFilename());
+        }
+    }
+
+    public String store(InputStream source, String originalFilename) throws IOException {
+        return store(source, originalFilename, null);
+    }
+
+    /**
+     * ストリームを uploads ディレクトリ内の一時ファイルへ1回で書き出しながら SHA-256 を計算し、
+     * &lt;digest&gt;.&lt;拡張子&gt; に名前を変えて保存する（同じディレクトリ内なのでコピーは発生しない）。
+     * in は呼び出し側で閉じる。戻り値と削除のタイミングは store(MultipartFile) と同じ。
+     * owner を指定すると、その保留は owner だけが claim() / discard(imagePath, owner) できる。
+     */
+    public String store(InputStream source, String originalFilename, String owner) throws IOException {
+        Path uploadDir = uploadDir();
+        Files.createDirectories(uploadDir);
+
+        Timer.Sample sample = Timer.start(meterRegistry);
+        Path temp = Files.createTempFile(uploadDir, "upload_", ".tmp");
+        try {
+            MessageDigest digest = sha256();
+            long size = Files.copy(new DigestInputStream(source, digest), temp, StandardCopyOption.REPLACE_EXISTING);
+            String fileName = HexFormat.of().formatHex(digest.digest()) + "." + extensionOf(originalFilename);
+            Path target = uploadDir.resolve(fileName);
+            String imagePath = URL_PREFIX + fileName;
+
+            lock.lock();
+            try {
+                while (purging.contains(imagePath)) {
+                    purgeFinished.awaitUninterruptibly();
+                }
+                pending.merge(imagePath, 1, Integer::sum);
+                pendingSince.put(imagePath, System.currentTimeMillis());
+                if (owner != null) {
+                    pendingOwners.computeIfAbsent(imagePath, key -> new HashMap<>()).merge(owner, 1, Integer::sum);
+                }
+                if (!Files.exists(target)) {
+                    Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+                }
+            } finally {
+                lock.unlock();
+            }
+            uploadSize.record(size);
+            sample.stop(uploadWriteTime);
+            return imagePath;
+        } catch (IOException | RuntimeException e) {
+            storeFailures.increment();
+            throw e;
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * store() したがレシピの保存に失敗した画像を手放す（owner を指定せずに保存したもの、または claim() したもの）。
+     */
+    public void discard(String imagePath) {
+        if (imagePath == null) {
+            return;
+        }
+        lock.lock();
+        try {
+            releasePending(imagePath);
+        } finally {
+            lock.unlock();
+        }
+        deleteIfUnreferenced(imagePath);
+    }
+
+    /**
+     * owner が保存してまだレシピに使っていない画像を手放す。owner の保留が無ければ何もせず false。
+     */
+    public boolean discard(String imagePath, String owner) {
+        lock.lock();
+        try {
+            if (!releaseOwner(imagePath, owner)) {
+                return false;
+            }
+            releasePending(imagePath);
+        } finally {
+            lock.unlock();
+        }
+        deleteIfUnreferenced(imagePath);
+        return true;
+    }
+
+    /**
+     * owner が保存した画像をレシピの保存に使う。保留は owner のものから誰のものでもない保留に移り、
+     * レシピの保存（SAVED イベント）か discard(imagePath) で解除される。owner の保留が無ければ false。
+     */
+    public boolean claim(String imagePath, String owner) {
+        lock.lock();
+        try {
+            return releaseOwner(imagePath, owner);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * どのレシピからも参照されていなければ画像と派生画像を削除する。
+     */
+    public void cleanupIfUnreferenced(String imagePath) {
+        if (imagePath != null) {
+            deleteIfUnreferenced(imagePath);
+        }
+    }
+
+    /**
+     * 全件削除後に、imagePaths のうち参照も保留もない画像と派生画像を executor で並列に削除する。
+     * ロック内では判定と削除中の印付けだけを行い、DB の確認とファイル操作はロックの外で行う。
+     * 1件処理するたびに onProcessed を呼び、すべて終わるまで戻らない。
+     */
+    public void purge(Collection<String> imagePaths, Executor executor, Runnable onProcessed) throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(imagePaths.size());
+        for (String imagePath : imagePaths) {
+            executor.execute(() -> {
+                try {
+                    purgeOne(imagePath);
+                } finally {
+                    onProcessed.run();
+                    done.countDown();
+                }
+            });
+        }
+        done.await();
+    }
+
+    private void purgeOne(String imagePath) {
+        lock.lock();
+        try {
+            if (refCounts.containsKey(imagePath) || pending.containsKey(imagePath) || !purging.add(imagePath)) {
+                return;
+            }
+        } finally {
+            lock.unlock();
+        }
+        try {
+            if (!recipeRepository.existsByImagePath(imagePath)) {
+                deleteFiles(imagePath);
+            }
+        } finally {
+            lock.lock();
+            try {
+                purging.remove(imagePath);
+                purgeFinished.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * store() から ttl を過ぎてもレシピに紐づかない画像（フォームを閉じた場合など）の保留を解除し、件数を返す。
+     * 解除した画像は孤立ファイルとして GC で削除される。
+     */
+    public int expirePending(Duration ttl) {
+        long cutoff = System.currentTimeMillis() - ttl.toMillis();
+        lock.lock();
+        try {
+            int released = 0;
+            for (Iterator<Map.Entry<String, Long>> it = pendingSince.entrySet().iterator(); it.hasNext(); ) {
+                Map.Entry<String, Long> entry = it.next();
+                if (entry.getValue() < cutoff) {
+                    it.remove();
+                    pending.remove(entry.getKey());
+                    pendingOwners.remove(entry.getKey());
+                    released++;
+                }
+            }
+            return released;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * GC 用：DB（referencedInDb）でもメモリ上でも参照されていなければ画像と派生画像を削除し、
+     * 解放したバイト数を返す。参照されていれば -1。
+     */
+    public long deleteIfOrphan(String imagePath, Set<String> referencedInDb) {
+        lock.lock();
+        try {
+            if (referencedInDb.contains(imagePath) || refCounts.containsKey(imagePath)
+                    || pending.containsKey(imagePath) || purging.contains(imagePath)) {
+                return -1;
+            }
+            return deleteFiles(imagePath);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * GC 用：元画像が無くなり、どのレシピからも参照されていない派生画像を削除し、解放したバイト数を返す。
+     * 元画像の有無はロック内で確認するので、同じ内容の画像が store() されれば派生画像は作り直される。
+     */
+    public long deleteIfOrphanDerivative(String derivativePath, Set<String> referencedInDb) {
+        lock.lock();
+        try {
+            if (referencedInDb.contains(derivativePath) || hasOriginal(derivativePath)) {
+                return -1;
+            }
+            return deleteFile(resolve(derivativePath));
+        } catch (IOException | IllegalArgumentException e) {
+            deleteFailures.increment();
+            log.warn("派生画像削除エラー: {}", derivativePath, e);
+            return -1;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // 派生画像 <digest>_<variant>.jpg の元画像 <digest>.<拡張子> があるか
+    private boolean hasOriginal(String derivativePath) {
+        String name = resolve(derivativePath).getFileName().toString();
+        int separator = name.lastIndexOf('_');
+        if (separator <= 0) {
+            return false;
+        }
+        String digest = name.substring(0, separator);
+        Path uploadDir = uploadDir();
+        if (Files.exists(uploadDir.resolve(digest + "." + DEFAULT_EXTENSION))) {
+            return true;
+        }
+        for (String extension : KNOWN_EXTENSIONS) {
+            if (Files.exists(uploadDir.resolve(digest + "." + extension))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @EventListener
+    public void onRecipeChanged(RecipeChangedEvent event) {
+        switch (event.type()) {
+            case LOADED, SAVED -> track(event.recipe());
+            case DELETED -> untrack(event.recipeId());
+            case CLEARED -> clear();
+        }
+    }
+
+    /**
+     * owner が store() してまだレシピに紐づけていない画像か
+     */
+    public boolean isPending(String imagePath, String owner) {
+        lock.lock();
+        try {
+            Map<String, Integer> owners = imagePath != null ? pendingOwners.get(imagePath) : null;
+            return owners != null && owner != null && owners.containsKey(owner);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public boolean isReferenced(String imagePath) {
+        lock.lock();
+        try {
+            return refCounts.containsKey(imagePath) || pending.containsKey(imagePath);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * "/uploads/xxx" 形式の URL パスを uploads ディレクトリ内の実ファイルに変換する。
+     * uploads の外を指すパスは IllegalArgumentException。
+     */
+    public Path resolve(String imagePath) {
+        String relative = imagePath.startsWith(URL_PREFIX)
+                ? imagePath.substring(URL_PREFIX.length())
+                : Paths.get(imagePath).getFileName().toString();
+        Path uploadDir = uploadDir();
+        Path resolved = uploadDir.resolve(relative).normalize();
+        if (!resolved.startsWith(uploadDir)) {
+            throw new IllegalArgumentException("不正な画像パスです: " + imagePath);
+        }
+        return resolved;
+    }
+
+    /**
+     * 元画像に対応する派生画像の URL パス（例: /uploads/derivatives/&lt;digest&gt;_card.jpg）。
+     */
+    public String derivativePath(String imagePath, String variant) {
+        return URL_PREFIX + DERIVATIVE_DIR + "/" + stripExtension(resolve(imagePath).getFileName().toString())
+                + "_" + variant + ".jpg";
+    }
+
+    public Path uploadDir() {
+        return Paths.get(System.getProperty("user.dir"), "uploads").toAbsolutePath().normalize();
+    }
+
+    private void track(Recipe recipe) {
+        if (recipe == null || recipe.getId() == null) {
+            return;
+        }
+        String released = null;
+        lock.lock();
+        try {
+            String current = recipe.getImagePath();
+            String previous = current != null
+                    ? imagePathByRecipe.put(recipe.getId(), current)
+                    : imagePathByRecipe.remove(recipe.getId());
+            if (current != null) {
+                releasePending(current);
+                if (!current.equals(previous)) {
+                    refCounts.merge(current, 1, Integer::sum);
+                }
+            }
+            if (previous != null && !previous.equals(current) && decrement(previous)) {
+                released = previous;
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (released != null) {
+            deleteIfUnreferenced(released);
+        }
+    }
+
+    private void untrack(Long recipeId) {
+        String previous;
+        lock.lock();
+        try {
+            previous = imagePathByRecipe.remove(recipeId);
+            if (previous != null && !decrement(previous)) {
+                previous = null;
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (previous != null) {
+            deleteIfUnreferenced(previous);
+        }
+    }
+
+    // ファイルは削除しない（全件削除ジョブが purge() で削除する）
+    private void clear() {
+        lock.lock();
+        try {
+            refCounts.clear();
+            imagePathByRecipe.clear();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // 参照数を1つ減らし、参照がなくなったら true（削除はロックを外してから deleteIfUnreferenced() で行う）
+    private boolean decrement(String imagePath) {
+        return refCounts.computeIfPresent(imagePath, (key, value) -> value > 1 ? value - 1 : null) == null;
+    }
+
+    // 誰のものでもない保留を1つ解除する（ユーザーの保留は claim() されるまで残す）
+    private void releasePending(String imagePath) {
+        Integer count = pending.get(imagePath);
+        if (count == null || count <= ownedCount(imagePath)) {
+            return;
+        }
+        if (count > 1) {
+            pending.put(imagePath, count - 1);
+        } else {
+            pending.remove(imagePath);
+            pendingSince.remove(imagePath);
+        }
+    }
+
+    private int ownedCount(String imagePath) {
+        Map<String, Integer> owners = pendingOwners.get(imagePath);
+        return owners != null ? owners.values().stream().mapToInt(Integer::intValue).sum() : 0;
+    }
+
+    // owner の保留を1つ誰のものでもない保留に移す
+    private boolean releaseOwner(String imagePath, String owner) {
+        Map<String, Integer> owners = imagePath != null ? pendingOwners.get(imagePath) : null;
+        if (owners == null || owner == null || !owners.containsKey(owner)) {
+            return false;
+        }
+        owners.computeIfPresent(owner, (key, value) -> value > 1 ? value - 1 : null);
+        if (owners.isEmpty()) {
+            pendingOwners.remove(imagePath);
+        }
+        return true;
+    }
+
+    // 起動直後など参照数が揃っていない可能性があるため、削除前にDBでも参照がないことを確認する。
+    // DB の確認はロックの外で行い、その間に track() や store() で参照・保留が増えていないかをロック内で確かめてから削除する
+    private void deleteIfUnreferenced(String imagePath) {
+        if (isInUse(imagePath) || recipeRepository.existsByImagePath(imagePath)) {
+            return;
+        }
+        lock.lock();
+        try {
+            if (!isInUse(imagePath)) {
+                deleteFiles(imagePath);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private boolean isInUse(String imagePath) {
+        lock.lock();
+        try {
+            return refCounts.containsKey(imagePath) || pending.containsKey(imagePath) || purging.contains(imagePath);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // 削除したバイト数を返す（失敗したら -1）
+    private long deleteFiles(String imagePath) {
+        try {
+            return deleteFile(resolve(imagePath))
+                    + deleteFile(resolve(derivativePath(imagePath, ImageDerivativeService.CARD_VARIANT)))
+                    + deleteFile(resolve(derivativePath(imagePath, ImageDerivativeService.DETAIL_VARIANT)));
+        } catch (IOException | IllegalArgumentException e) {
+            deleteFailures.increment();
+            log.warn("画像削除エラー: {}", imagePath, e);
+            return -1;
+        }
+    }
+
+    private long deleteFile(Path path) throws IOException {
+        try {
+            long size = Files.size(path);
+            Files.delete(path);
+            filesDeleted.increment();
+            return size;
+        } catch (NoSuchFileException e) {
+            return 0;
+        }
+    }
+
+    private static String extensionOf(String originalFilename) {
+        if (originalFilename == null) {
+            return DEFAULT_EXTENSION;
+        }
+        int dot = originalFilename.lastIndexOf('.');
+        String extension = dot >= 0 ? originalFilename.substring(dot + 1).toLowerCase(Locale.ROOT) : "";
+        return KNOWN_EXTENSIONS.contains(extension) ? extension : DEFAULT_EXTENSION;
+    }
+
+    private static String stripExtension(String fileName) {
+        int dot = fileName.lastIndexOf('.');
+        return dot > 0 ? fileName.substring(0, dot) : fileName;
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
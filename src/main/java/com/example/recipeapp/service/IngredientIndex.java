@@ -0,0 +1,205 @@
+package com.example.recipeapp.service;
+
+import com.example.recipeapp.model.Recipe;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+/**
+ * 材料の辞書と材料別のビットセット索引（「手持ちの材料で作れるレシピ」の検索用）。
+ * 保存のたびに材料欄から材料名を取り出して正規化し（IngredientNames）、材料名に小さな整数 ID を振って
+ * 材料ごとにレシピ ID のビットセットを持つ。
+ * 手持ちの材料のビットセットを順に走査してレシピごとに一致数を数え、必要な材料数との差（足りない数）が
+ * maxMissing 以下のものを返すので、手持ちやレシピが増えても走査は一致した組み合わせの数で済む。
+ * 辞書は CategoryIndex と同じく追加だけで、名前は削除しない。
+ */
+@Service
+public class IngredientIndex {
+
+    /**
+     * 1件の一致。matched は手持ちで足りる材料の数、required はレシピの材料の数、missing は足りない材料名。
+     */
+    public record PantryMatch(Long recipeId, int matched, int required, List<String> missing) {
+    }
+
+    /**
+     * 一致したレシピの1ページ分。total は条件を満たす全件数。
+     */
+    public record PantryResult(List<PantryMatch> matches, int total) {
+    }
+
+    // 順位付けに使う一致数（足りない材料名はページに入ったものだけ求める）
+    private record Coverage(int bit, int matched, int required) {
+        int missing() {
+            return required - matched;
+        }
+    }
+
+    private static final Comparator<Coverage> RANKING = Comparator
+            .comparingInt(Coverage::missing)
+            .thenComparing(Comparator.comparingDouble((Coverage coverage) -> (double) coverage.matched() / coverage.required()).reversed())
+            .thenComparing(Comparator.comparingInt(Coverage::matched).reversed())
+            .thenComparingInt(Coverage::bit);
+
+    private final Map<String, Integer> idsByName = new HashMap<>();
+    private final List<String> names = new ArrayList<>();
+    private final List<BitSet> recipesByIngredient = new ArrayList<>();
+    // レシピごとの材料 ID（重複なし）
+    private final Map<Integer, int[]> ingredientsByRecipe = new HashMap<>();
+
+    @EventListener
+    @Order(RecipeChangedEvent.INDEX_ORDER)
+    public void onRecipeChanged(RecipeChangedEvent event) {
+        switch (event.type()) {
+            case LOADED, SAVED -> put(event.recipe());
+            case DELETED -> remove(event.recipeId());
+            case CLEARED -> clear();
+            default -> {
+            }
+        }
+    }
+
+    public synchronized void put(Recipe recipe) {
+        if (recipe == null || recipe.getId() == null) {
+            return;
+        }
+        int bit = toBit(recipe.getId());
+        removeInternal(bit);
+        Set<Integer> ids = new LinkedHashSet<>();
+        for (String name : IngredientNames.parse(recipe.getIngredients())) {
+            String key = normalize(name);
+            if (!key.isEmpty()) {
+                ids.add(register(key, name));
+            }
+        }
+        if (ids.isEmpty()) {
+            return;
+        }
+        int[] ingredients = ids.stream().mapToInt(Integer::intValue).toArray();
+        for (int id : ingredients) {
+            recipesByIngredient.get(id).set(bit);
+        }
+        ingredientsByRecipe.put(bit, ingredients);
+    }
+
+    public synchronized void remove(Long recipeId) {
+        if (recipeId != null) {
+            removeInternal(toBit(recipeId));
+        }
+    }
+
+    // 辞書は残し、レシピの材料だけを消す
+    public synchronized void clear() {
+        for (BitSet recipes : recipesByIngredient) {
+            recipes.clear();
+        }
+        ingredientsByRecipe.clear();
+    }
+
+    /**
+     * 手持ちの材料（分量付きでもよい）で作れるレシピを、足りない材料が少ない順
+     * （同数なら材料のうち手持ちで足りる割合が高い順、ID 昇順）に返す。
+     * 手持ちの材料が1つも使われていないレシピは含めない。
+     */
+    public synchronized PantryResult match(Collection<String> pantry, int maxMissing, int offset, int limit) {
+        Set<Integer> have = new LinkedHashSet<>();
+        for (String item : pantry) {
+            for (String name : IngredientNames.parse(item)) {
+                Integer id = idsByName.get(normalize(name));
+                if (id != null) {
+                    have.add(id);
+                }
+            }
+        }
+        if (have.isEmpty()) {
+            return new PantryResult(List.of(), 0);
+        }
+
+        // レシピごとに手持ちで足りる材料の数を数える
+        int length = 0;
+        for (int id : have) {
+            length = Math.max(length, recipesByIngredient.get(id).length());
+        }
+        int[] counts = new int[length];
+        BitSet candidates = new BitSet(length);
+        for (int id : have) {
+            BitSet recipes = recipesByIngredient.get(id);
+            for (int bit = recipes.nextSetBit(0); bit >= 0; bit = recipes.nextSetBit(bit + 1)) {
+                counts[bit]++;
+            }
+            candidates.or(recipes);
+        }
+
+        int pageEnd = offset + limit;
+        // 上位 pageEnd 件だけを保持するヒープ（先頭が最も順位の低い結果）
+        PriorityQueue<Coverage> top = new PriorityQueue<>(RANKING.reversed());
+        int total = 0;
+        for (int bit = candidates.nextSetBit(0); bit >= 0; bit = candidates.nextSetBit(bit + 1)) {
+            int required = ingredientsByRecipe.get(bit).length;
+            if (required - counts[bit] > maxMissing) {
+                continue;
+            }
+            total++;
+            Coverage coverage = new Coverage(bit, counts[bit], required);
+            if (top.size() < pageEnd) {
+                top.add(coverage);
+            } else if (pageEnd > 0 && RANKING.compare(coverage, top.peek()) < 0) {
+                top.poll();
+                top.add(coverage);
+            }
+        }
+
+        List<Coverage> ranked = new ArrayList<>(top);
+        ranked.sort(RANKING);
+        List<PantryMatch> matches = new ArrayList<>();
+        for (int i = offset; i < ranked.size(); i++) {
+            Coverage coverage = ranked.get(i);
+            List<String> missing = new ArrayList<>(coverage.missing());
+            for (int id : ingredientsByRecipe.get(coverage.bit())) {
+                if (!have.contains(id)) {
+                    missing.add(names.get(id));
+                }
+            }
+            matches.add(new PantryMatch((long) coverage.bit(), coverage.matched(), coverage.required(), missing));
+        }
+        return new PantryResult(matches, total);
+    }
+
+    private void removeInternal(int bit) {
+        int[] old = ingredientsByRecipe.remove(bit);
+        if (old != null) {
+            for (int id : old) {
+                recipesByIngredient.get(id).clear(bit);
+            }
+        }
+    }
+
+    // 表示名は最初に現れたときの書き方
+    private int register(String key, String name) {
+        return idsByName.computeIfAbsent(key, k -> {
+            names.add(name);
+            recipesByIngredient.add(new BitSet());
+            return names.size() - 1;
+        });
+    }
+
+    private static String normalize(String name) {
+        return RecipeSearchIndex.normalize(name).strip();
+    }
+
+    // ビットセットの添字に使うため、レシピ ID は int の範囲に収まる前提
+    private static int toBit(long recipeId) {
+        return Math.toIntExact(recipeId);
+    }
+}
@@ -0,0 +1,51 @@
+package com.example.recipeapp.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * 材料欄（自由記述）から材料名を取り出す。
+ * 行・読点・カンマで区切り、行頭の記号と分量を除いたものを材料名とする。
+ * 例：「・玉ねぎ 1個」→「玉ねぎ」、「卵3個」→「卵」、「塩、こしょう 少々」→「塩」「こしょう」
+ */
+final class IngredientNames {
+
+    private static final Pattern SEPARATOR = Pattern.compile("[\\r\\n、,]+");
+    private static final Pattern BULLET = Pattern.compile("^[・\\-*•●○◎□■◇◆]+");
+    private static final Pattern WHITESPACE = Pattern.compile("[\\s　]+");
+    // 名前の後ろに続く分量・補足（数字、括弧、「少々」など）
+    private static final Pattern QUANTITY = Pattern.compile(
+            "([0-9０-９½¼]+|[（(【\\[]|少々|適量|適宜|少量|ひとつまみ|お好みで|大さじ|小さじ).*$");
+
+    private IngredientNames() {
+    }
+
+    /**
+     * 材料名を記述順に返す（重複はそのまま）。
+     */
+    static List<String> parse(String ingredients) {
+        List<String> names = new ArrayList<>();
+        if (ingredients == null || ingredients.isBlank()) {
+            return names;
+        }
+        for (String part : SEPARATOR.split(ingredients)) {
+            String name = name(part);
+            if (name != null) {
+                names.add(name);
+            }
+        }
+        return names;
+    }
+
+    private static String name(String part) {
+        String text = BULLET.matcher(part.strip()).replaceFirst("").strip();
+        if (text.isEmpty()) {
+            return null;
+        }
+        String name = WHITESPACE.split(text, 2)[0];
+        // 先頭から分量だけのもの（「200g」など）は材料名にしない
+        name = QUANTITY.matcher(name).replaceFirst("");
+        return name.isEmpty() ? null : name;
+    }
+}
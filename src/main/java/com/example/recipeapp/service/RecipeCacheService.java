@@ -0,0 +1,117 @@
+package com.example.recipeapp.service;
+
+import com.example.recipeapp.model.Recipe;
+import com.example.recipeapp.repository.RecipeRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Service;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Recipe の二次キャッシュ（エンティティ・categories コレクション・クエリ結果）の管理。
+ * Hibernate 経由の保存・削除はキャッシュに自動で反映されるため、ここでは
+ * 全件削除のように Hibernate がエンティティ単位で追えない変更のときだけまとめて破棄する。
+ * ヒット率を確認できるよう Hibernate の統計情報を集計して返す。
+ */
+@Service
+public class RecipeCacheService {
+
+    private static final String CATEGORIES_ROLE = Recipe.class.getName() + ".categories";
+    private static final List<String> QUERY_REGIONS =
+            List.of("default-query-results-region", RecipeRepository.FAVORITES_QUERY_REGION);
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    // 名前付きのクエリキャッシュリージョンは最初のクエリで作られる。それより前に統計を取ると
+    // Hibernate が「リージョン無し」を覚えてしまい、以後のクエリの統計記録で失敗するので、起動時に作っておく
+    @PostConstruct
+    void createQueryRegions() {
+        entityManagerFactory.unwrap(SessionFactoryImplementor.class).getCache()
+                .getQueryResultsCache(RecipeRepository.FAVORITES_QUERY_REGION);
+    }
+
+    @EventListener
+    @Order(RecipeChangedEvent.INDEX_ORDER)
+    public void onRecipeChanged(RecipeChangedEvent event) {
+        if (event.type() == RecipeChangedEvent.Type.CLEARED) {
+            evictAll();
+        }
+    }
+
+    public void evictAll() {
+        org.hibernate.Cache cache = sessionFactory().getCache();
+        cache.evictEntityData(Recipe.class);
+        cache.evictCollectionData(CATEGORIES_ROLE);
+        cache.evictQueryRegions();
+    }
+
+    /**
+     * 二次キャッシュ全体とリージョンごとのヒット・ミス・登録件数。
+     */
+    public Map<String, Object> getStatistics() {
+        Statistics statistics = sessionFactory().getStatistics();
+
+        Map<String, Object> regions = new LinkedHashMap<>();
+        for (String regionName : statistics.getSecondLevelCacheRegionNames()) {
+            if (QUERY_REGIONS.contains(regionName)) {
+                continue;
+            }
+            CacheRegionStatistics region = statistics.getDomainDataRegionStatistics(regionName);
+            if (region != null) {
+                regions.put(regionName, toMap(region));
+            }
+        }
+        for (String regionName : QUERY_REGIONS) {
+            CacheRegionStatistics queryRegion = statistics.getQueryRegionStatistics(regionName);
+            if (queryRegion != null) {
+                regions.put(queryRegion.getRegionName(), toMap(queryRegion));
+            }
+        }
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("enabled", statistics.isStatisticsEnabled());
+        result.put("secondLevelCacheHits", statistics.getSecondLevelCacheHitCount());
+        result.put("secondLevelCacheMisses", statistics.getSecondLevelCacheMissCount());
+        result.put("secondLevelCachePuts", statistics.getSecondLevelCachePutCount());
+        result.put("secondLevelCacheHitRatio", ratio(statistics.getSecondLevelCacheHitCount(),
+                statistics.getSecondLevelCacheMissCount()));
+        result.put("queryCacheHits", statistics.getQueryCacheHitCount());
+        result.put("queryCacheMisses", statistics.getQueryCacheMissCount());
+        result.put("queryCachePuts", statistics.getQueryCachePutCount());
+        result.put("queryCacheHitRatio", ratio(statistics.getQueryCacheHitCount(),
+                statistics.getQueryCacheMissCount()));
+        result.put("entityLoads", statistics.getEntityLoadCount());
+        result.put("queryExecutions", statistics.getQueryExecutionCount());
+        result.put("regions", regions);
+        return result;
+    }
+
+    private static Map<String, Object> toMap(CacheRegionStatistics region) {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("hits", region.getHitCount());
+        map.put("misses", region.getMissCount());
+        map.put("puts", region.getPutCount());
+        map.put("hitRatio", ratio(region.getHitCount(), region.getMissCount()));
+        return map;
+    }
+
+    private static double ratio(long hits, long misses) {
+        long total = hits + misses;
+        return total > 0 ? Math.round(hits * 1000.0 / total) / 1000.0 : 0.0;
+    }
+
+    private SessionFactory sessionFactory() {
+        return entityManagerFactory.unwrap(SessionFactory.class);
+    }
+}
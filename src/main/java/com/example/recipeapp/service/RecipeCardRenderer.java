@@ -0,0 +1,125 @@
+package com.example.recipeapp.service;
+
+import com.example.recipeapp.model.Recipe;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Service;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.thymeleaf.ITemplateEngine;
+import org.thymeleaf.context.WebContext;
+import org.thymeleaf.web.servlet.JakartaServletWebApplication;
+
+import java.util.Set;
+
+/**
+ * 一覧のレシピカード（fragments/recipe_card.html）の描画結果をレシピごとにキャッシュする。
+ * キャッシュにはカードの描画に使う項目も一緒に持ち、表示しようとしているレシピと一致するときだけ使うので、
+ * 通知の前に読み込んだ古いレシピで描画したものが残っても表示されることはない。
+ * 保存・削除・お気に入りの切り替えでそのレシピの分を、全件削除で全体を破棄する。
+ * recipeapp.rendering.card-cache.enabled が false（開発時の既定）のときは home.html がフラグメントを直接挿入する。
+ */
+@Service
+public class RecipeCardRenderer {
+
+    private static final String TEMPLATE = "fragments/recipe_card";
+    private static final Set<String> SELECTORS = Set.of("card");
+
+    // カードの表示に使う項目（テンプレートで参照するものを増やしたらここにも加える）
+    private record CardState(String title, String reference, boolean favorite,
+                             String imagePath, String cardImagePath, Set<String> categories) {
+
+        static CardState of(Recipe recipe) {
+            return new CardState(recipe.getTitle(), recipe.getReference(), recipe.isFavorite(),
+                    recipe.getImagePath(), recipe.getCardImagePath(),
+                    recipe.getCategories() != null ? Set.copyOf(recipe.getCategories()) : Set.of());
+        }
+    }
+
+    private record RenderedCard(CardState state, String html) {
+    }
+
+    @Autowired
+    private ITemplateEngine templateEngine;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final boolean enabled;
+    private final Cache<Long, RenderedCard> cards;
+
+    private JakartaServletWebApplication application;
+
+    public RecipeCardRenderer(@Value("${recipeapp.rendering.card-cache.enabled:false}") boolean enabled,
+                              @Value("${recipeapp.rendering.card-cache.max-entries:10000}") long maxEntries) {
+        this.enabled = enabled;
+        this.cards = Caffeine.newBuilder()
+                .maximumSize(maxEntries)
+                .recordStats()
+                .build();
+    }
+
+    @PostConstruct
+    void registerMetrics() {
+        if (enabled) {
+            CaffeineCacheMetrics.monitor(meterRegistry, cards, "recipeCards");
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * カードの HTML。キャッシュに無いか内容が変わっていれば描画してキャッシュする。
+     * 描画はリクエスト中（home.html の描画中）に呼ぶ。
+     */
+    public String render(Recipe recipe) {
+        CardState state = CardState.of(recipe);
+        RenderedCard cached = recipe.getId() != null ? cards.getIfPresent(recipe.getId()) : null;
+        if (cached != null && cached.state().equals(state)) {
+            return cached.html();
+        }
+        String html = renderFragment(recipe);
+        if (recipe.getId() != null) {
+            cards.put(recipe.getId(), new RenderedCard(state, html));
+        }
+        return html;
+    }
+
+    private String renderFragment(Recipe recipe) {
+        // @{...} のリンクはコンテキストパスを解決するため Web のコンテキストで描画する
+        ServletRequestAttributes attributes = (ServletRequestAttributes) RequestContextHolder.currentRequestAttributes();
+        WebContext context = new WebContext(application(attributes).buildExchange(
+                attributes.getRequest(), attributes.getResponse()));
+        context.setVariable("recipe", recipe);
+        return templateEngine.process(TEMPLATE, SELECTORS, context);
+    }
+
+    private JakartaServletWebApplication application(ServletRequestAttributes attributes) {
+        JakartaServletWebApplication current = application;
+        if (current == null) {
+            current = JakartaServletWebApplication.buildApplication(attributes.getRequest().getServletContext());
+            application = current;
+        }
+        return current;
+    }
+
+    @EventListener
+    @Order(RecipeChangedEvent.INDEX_ORDER)
+    public void onRecipeChanged(RecipeChangedEvent event) {
+        switch (event.type()) {
+            case SAVED, FAVORITE_CHANGED, DELETED -> cards.invalidate(event.recipeId());
+            case CLEARED -> cards.invalidateAll();
+            default -> {
+            }
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package com.example.recipeapp.service;
+
+import com.example.recipeapp.model.Recipe;
+
+/**
+ * レシピの追加・更新・削除を通知するイベント。
+ * インメモリの索引や集計はこのイベントを購読して差分更新する。
+ */
+public record RecipeChangedEvent(Type type, Long recipeId, Recipe recipe, boolean favorite) {
+
+    /**
+     * 読み取り側の索引・集計（検索・統計・カテゴリ・ランダム・二次キャッシュ）の購読順。
+     * RecipeDataVersion はこれらの更新がすべて終わってから版数を上げる。
+     */
+    public static final int INDEX_ORDER = 0;
+
+    public enum Type {
+        /** 起動時の初期読み込み（データ自体は変更されていない） */
+        LOADED,
+        /** 新規登録・更新 */
+        SAVED,
+        /** お気に入りの切り替えのみ（recipe は null、favorite が新しい値） */
+        FAVORITE_CHANGED,
+        /** 削除 */
+        DELETED,
+        /** 全件削除 */
+        CLEARED
+    }
+
+    public static RecipeChangedEvent loaded(Recipe recipe) {
+        return new RecipeChangedEvent(Type.LOADED, recipe.getId(), recipe, recipe.isFavorite());
+    }
+
+    public static RecipeChangedEvent saved(Recipe recipe) {
+        return new RecipeChangedEvent(Type.SAVED, recipe.getId(), recipe, recipe.isFavorite());
+    }
+
+    public static RecipeChangedEvent favoriteChanged(Long recipeId, boolean favorite) {
+        return new RecipeChangedEvent(Type.FAVORITE_CHANGED, recipeId, null, favorite);
+    }
+
+    public static RecipeChangedEvent deleted(Long recipeId) {
+        return new RecipeChangedEvent(Type.DELETED, recipeId, null, false);
+    }
+
+    public static RecipeChangedEvent cleared() {
+        return new RecipeChangedEvent(Type.CLEARED, null, null, false);
+    }
+}
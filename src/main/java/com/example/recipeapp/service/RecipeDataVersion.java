@@ -0,0 +1,126 @@
+package com.example.recipeapp.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * レシピデータの版数。JSON API の ETag に使い、If-None-Match が一致すれば DB や索引に触れずに 304 を返す。
+ * 全体の版数はレシピの変更（起動時の読み込みを含む）ごとに、カテゴリごとの版数はそのカテゴリに
+ * 属する（属していた）レシピが変わるたびに増える。
+ * 版数は読み取り側の索引の更新（RecipeChangedEvent.INDEX_ORDER）がすべて終わってから、
+ * トランザクションの中で通知されたときはそのコミット後に増やすので、新しい ETag に古い内容が付くことはない
+ * （古い ETag に新しい内容が付くことはあるが、次の問い合わせで取り直すだけ）。
+ * イベントを伴わない書き込み（まとめて反映したお気に入り、派生画像のパス）は touch で版数を上げる。
+ */
+@Service
+public class RecipeDataVersion {
+
+    // 再起動で版数が 0 に戻っても、以前の ETag と一致しないようにする
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+
+    private final AtomicLong version = new AtomicLong();
+    private final Map<String, AtomicLong> categoryVersions = new ConcurrentHashMap<>();
+
+    // 変更前に属していたカテゴリ（イベントは同じスレッドで順に配信される）
+    private final ThreadLocal<Set<String>> previousCategories = new ThreadLocal<>();
+
+    @Autowired
+    private CategoryIndex categoryIndex;
+
+    @EventListener
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public void beforeRecipeChanged(RecipeChangedEvent event) {
+        switch (event.type()) {
+            case SAVED, FAVORITE_CHANGED, DELETED -> previousCategories.set(categoryIndex.categoriesOf(event.recipeId()));
+            default -> previousCategories.remove();
+        }
+    }
+
+    @EventListener
+    @Order(Ordered.LOWEST_PRECEDENCE)
+    public void afterRecipeChanged(RecipeChangedEvent event) {
+        Set<String> affected = new HashSet<>();
+        Set<String> previous = previousCategories.get();
+        previousCategories.remove();
+        if (previous != null) {
+            affected.addAll(previous);
+        }
+        if (event.recipe() != null && event.recipe().getCategories() != null) {
+            affected.addAll(event.recipe().getCategories());
+        }
+        if (event.type() == RecipeChangedEvent.Type.CLEARED) {
+            affected.addAll(categoryVersions.keySet());
+        }
+        increment(affected);
+    }
+
+    /**
+     * イベントを通さずに DB へ書き込んだレシピの分だけ版数を上げる。書き込みをコミットした後に呼ぶ
+     * （トランザクションの中ならコミット後に上げる）。
+     */
+    public void touch(Collection<Long> recipeIds) {
+        Set<String> affected = new HashSet<>();
+        for (Long id : recipeIds) {
+            affected.addAll(categoryIndex.categoriesOf(id));
+        }
+        increment(affected);
+    }
+
+    // コミット前に上げると、まだ見えない変更の前の内容に新しい ETag が付いてしまう
+    private void increment(Set<String> categories) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    incrementNow(categories);
+                }
+            });
+        } else {
+            incrementNow(categories);
+        }
+    }
+
+    private void incrementNow(Set<String> categories) {
+        for (String category : categories) {
+            categoryVersions.computeIfAbsent(category, key -> new AtomicLong()).incrementAndGet();
+        }
+        version.incrementAndGet();
+    }
+
+    /**
+     * 全体の版数の ETag。
+     */
+    public String etag() {
+        return "W/\"" + epoch + "-" + version.get() + "\"";
+    }
+
+    /**
+     * カテゴリ名に query を含むカテゴリ（検索のカテゴリ条件と同じ判定）の版数から作る ETag。
+     * 結果がそれらのカテゴリのレシピだけで決まる問い合わせに使う。空なら全体の ETag。
+     */
+    public String categoryEtag(String query) {
+        String text = RecipeSearchIndex.normalize(query).trim();
+        if (text.isEmpty()) {
+            return etag();
+        }
+        long sum = 0;
+        for (Map.Entry<String, AtomicLong> entry : categoryVersions.entrySet()) {
+            if (RecipeSearchIndex.normalize(entry.getKey()).contains(text)) {
+                sum += entry.getValue().get();
+            }
+        }
+        return "W/\"" + epoch + "-c" + sum + "\"";
+    }
+}
@@ -0,0 +1,252 @@
+package com.example.recipeapp.service;
+
+import com.example.recipeapp.model.Recipe;
+import com.example.recipeapp.repository.RecipeRepository;
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.util.MinimalPrettyPrinter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.BufferedWriter;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Set;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * レシピデータのストリーミングエクスポート。
+ * 1件ずつDBから読み出してレスポンスへ直接書き出し、書き終えたエンティティは
+ * 永続化コンテキストから切り離すため、件数に関わらずヒープ使用量は一定。
+ */
+@Service
+public class RecipeExportService {
+
+    private static final int BUFFER_SIZE = 16 * 1024;
+
+    private static final String[] CSV_HEADER = {
+            "id", "title", "ingredients", "instructions", "categories", "favorite", "reference", "hasImage"
+    };
+
+    // CSV でカテゴリを1列にまとめるときの区切り文字
+    private static final String CSV_CATEGORY_SEPARATOR = ";";
+
+    public enum Format {
+        /** 従来どおりの JSON 配列 */
+        JSON("application/json", "recipes.json"),
+        /** 1行1レシピの JSON（NDJSON） */
+        NDJSON("application/x-ndjson", "recipes.ndjson"),
+        /** gzip 圧縮した CSV */
+        CSV("application/gzip", "recipes.csv.gz");
+
+        private final String contentType;
+        private final String fileName;
+
+        Format(String contentType, String fileName) {
+            this.contentType = contentType;
+            this.fileName = fileName;
+        }
+
+        public String getContentType() {
+            return contentType;
+        }
+
+        public String getFileName() {
+            return fileName;
+        }
+
+        /**
+         * format パラメータから形式を決める。未対応の値は IllegalArgumentException。
+         */
+        public static Format of(String value) {
+            if (value == null || value.isBlank()) {
+                return JSON;
+            }
+            return switch (value.trim().toLowerCase(Locale.ROOT)) {
+                case "json" -> JSON;
+                case "ndjson", "jsonl" -> NDJSON;
+                case "csv", "csv.gz" -> CSV;
+                default -> throw new IllegalArgumentException("未対応のエクスポート形式です: " + value);
+            };
+        }
+    }
+
+    @Autowired
+    private RecipeRepository recipeRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    /**
+     * 全レシピを指定形式で書き出し、書き出した件数を返す。
+     * out は呼び出し側で閉じる。
+     */
+    @Transactional(readOnly = true)
+    public long export(Format format, OutputStream out) throws IOException {
+        try (Stream<Recipe> recipes = recipeRepository.streamAllOrderById()) {
+            return write(format, recipes.map(this::detach).iterator(), out);
+        }
+    }
+
+    /**
+     * recipes を指定形式で書き出し、書き出した件数を返す（DB を使わないのでベンチマークからも呼ぶ）。
+     */
+    long write(Format format, Iterator<Recipe> recipes, OutputStream out) throws IOException {
+        return switch (format) {
+            case JSON -> writeJsonArray(recipes, out);
+            case NDJSON -> writeNdjson(recipes, out);
+            case CSV -> writeGzipCsv(recipes, out);
+        };
+    }
+
+    private long writeJsonArray(Iterator<Recipe> recipes, OutputStream out) throws IOException {
+        long count = 0;
+        try (JsonGenerator generator = createGenerator(out)) {
+            generator.writeStartArray();
+            while (recipes.hasNext()) {
+                writeJsonRow(generator, recipes.next());
+                count++;
+            }
+            generator.writeEndArray();
+        }
+        return count;
+    }
+
+    private long writeNdjson(Iterator<Recipe> recipes, OutputStream out) throws IOException {
+        long count = 0;
+        try (JsonGenerator generator = createGenerator(out)) {
+            generator.setPrettyPrinter(new MinimalPrettyPrinter("\n"));
+            while (recipes.hasNext()) {
+                writeJsonRow(generator, recipes.next());
+                count++;
+            }
+            if (count > 0) {
+                generator.writeRaw('\n');
+            }
+        }
+        return count;
+    }
+
+    private long writeGzipCsv(Iterator<Recipe> recipes, OutputStream out) throws IOException {
+        long count = 0;
+        GZIPOutputStream gzip = new GZIPOutputStream(new NonClosingOutputStream(out), BUFFER_SIZE);
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(gzip, StandardCharsets.UTF_8), BUFFER_SIZE)) {
+            writeCsvLine(writer, CSV_HEADER);
+            while (recipes.hasNext()) {
+                Recipe recipe = recipes.next();
+                writeCsvLine(writer, new String[]{
+                        String.valueOf(recipe.getId()),
+                        recipe.getTitle(),
+                        recipe.getIngredients(),
+                        recipe.getInstructions(),
+                        joinCategories(recipe.getCategories()),
+                        String.valueOf(recipe.isFavorite()),
+                        recipe.getReference(),
+                        String.valueOf(recipe.getImagePath() != null)
+                });
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private JsonGenerator createGenerator(OutputStream out) throws IOException {
+        JsonGenerator generator = objectMapper.getFactory().createGenerator(new NonClosingOutputStream(out), JsonEncoding.UTF8);
+        generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        return generator;
+    }
+
+    // 従来の /api/export と同じ項目を書き出す
+    private void writeJsonRow(JsonGenerator generator, Recipe recipe) throws IOException {
+        generator.writeStartObject();
+        generator.writeNumberField("id", recipe.getId());
+        generator.writeStringField("title", recipe.getTitle());
+        generator.writeStringField("ingredients", recipe.getIngredients());
+        generator.writeStringField("instructions", recipe.getInstructions());
+        generator.writeArrayFieldStart("categories");
+        if (recipe.getCategories() != null) {
+            for (String category : recipe.getCategories()) {
+                generator.writeString(category);
+            }
+        }
+        generator.writeEndArray();
+        generator.writeBooleanField("favorite", recipe.isFavorite());
+        generator.writeStringField("reference", recipe.getReference());
+        generator.writeBooleanField("hasImage", recipe.getImagePath() != null);
+        generator.writeEndObject();
+    }
+
+    private static void writeCsvLine(Writer writer, String[] values) throws IOException {
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            writeCsvValue(writer, values[i]);
+        }
+        writer.write("\r\n");
+    }
+
+    // カンマ・改行・ダブルクォートを含む値だけをクォートする
+    private static void writeCsvValue(Writer writer, String value) throws IOException {
+        if (value == null) {
+            return;
+        }
+        boolean needsQuote = false;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == ',' || c == '"' || c == '\n' || c == '\r') {
+                needsQuote = true;
+                break;
+            }
+        }
+        if (!needsQuote) {
+            writer.write(value);
+            return;
+        }
+        writer.write('"');
+        writer.write(value.replace("\"", "\"\""));
+        writer.write('"');
+    }
+
+    private static String joinCategories(Set<String> categories) {
+        return categories == null ? "" : String.join(CSV_CATEGORY_SEPARATOR, categories);
+    }
+
+    // 書き出し済みのエンティティを永続化コンテキストから外してメモリを解放する
+    private Recipe detach(Recipe recipe) {
+        entityManager.detach(recipe);
+        return recipe;
+    }
+
+    // レスポンスのストリームはサーブレットコンテナが閉じるため、close() を伝播させない
+    private static final class NonClosingOutputStream extends FilterOutputStream {
+
+        NonClosingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+        }
+
+        @Override
+        public void close() throws IOException {
+            flush();
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.example.recipeapp.service;
+
+import com.example.recipeapp.model.Recipe;
+import com.example.recipeapp.repository.RecipeRepository;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * レシピ ID の採番テーブルを既存データに合わせる。
+ * IDENTITY（AUTO_INCREMENT）で採番していた既存レコードと重複しないよう、
+ * 起動時に採番テーブルの値を max(id) 以降まで進める。
+ * Web サーバーの起動前（Bean 初期化時）に実行されるため、最初の INSERT より必ず先に終わる。
+ */
+@Component
+public class RecipeIdGeneratorAligner {
+
+    private static final Logger log = LoggerFactory.getLogger(RecipeIdGeneratorAligner.class);
+
+    private static final String UPDATE_SQL = "UPDATE " + Recipe.ID_GENERATOR_TABLE
+            + " SET next_val = ? WHERE sequence_name = ? AND next_val < ?";
+    private static final String INSERT_SQL = "INSERT INTO " + Recipe.ID_GENERATOR_TABLE
+            + " (sequence_name, next_val) VALUES (?, ?)";
+
+    // 採番テーブルは Hibernate のスキーマ更新で作られるため、EntityManagerFactory の初期化後に実行する
+    @Autowired
+    private RecipeRepository recipeRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @PostConstruct
+    public void align() {
+        Long maxId = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(id), 0) FROM recipe", Long.class);
+        // pooled オプティマイザは読み出した値 v に対して (v - 割当数, v] を使うため、
+        // v >= max(id) + 割当数 にしておけば既存 ID と重ならない
+        long floor = (maxId != null ? maxId : 0L) + Recipe.ID_ALLOCATION_SIZE;
+
+        if (jdbcTemplate.update(UPDATE_SQL, floor, Recipe.ID_GENERATOR_SEGMENT, floor) > 0) {
+            log.info("レシピID採番テーブルを調整しました: next_val={}", floor);
+            return;
+        }
+        Integer rows = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM " + Recipe.ID_GENERATOR_TABLE
+                + " WHERE sequence_name = ?", Integer.class, Recipe.ID_GENERATOR_SEGMENT);
+        if (rows != null && rows > 0) {
+            return;
+        }
+        try {
+            jdbcTemplate.update(INSERT_SQL, Recipe.ID_GENERATOR_SEGMENT, floor);
+        } catch (DuplicateKeyException e) {
+            // 他のノードが同時に作成した
+            jdbcTemplate.update(UPDATE_SQL, floor, Recipe.ID_GENERATOR_SEGMENT, floor);
+        }
+    }
+}
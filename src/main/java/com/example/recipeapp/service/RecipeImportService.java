@@ -0,0 +1,214 @@
+package com.example.recipeapp.service;
+
+import com.example.recipeapp.model.Recipe;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * /api/export の対になる一括インポート。
+ * NDJSON（1行1レシピ）または JSON 配列を1件ずつ読み、CHUNK_SIZE 件ごとに
+ * 1トランザクションでまとめて INSERT する。recipe / recipe_category の INSERT は
+ * hibernate.jdbc.batch_size によって JDBC バッチで送られる。
+ */
+@Service
+public class RecipeImportService {
+
+    // 1トランザクションで登録する件数（コミット後に永続化コンテキストを空にしてメモリを解放する）
+    private static final int CHUNK_SIZE = 500;
+
+    // エラー内容を返す件数の上限（件数自体はすべて数える）
+    private static final int MAX_REPORTED_ERRORS = 20;
+
+    // Recipe のカラム長
+    private static final int MAX_TITLE_LENGTH = 255;
+    private static final int MAX_INGREDIENTS_LENGTH = 1000;
+    private static final int MAX_INSTRUCTIONS_LENGTH = 2000;
+    private static final int MAX_REFERENCE_LENGTH = 1000;
+    private static final int MAX_CATEGORY_LENGTH = 50;
+
+    /**
+     * 1件分の入力。エクスポートの id・hasImage は無視し、ID は新たに採番する。
+     */
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public record ImportRow(String title, String ingredients, String instructions,
+                            List<String> categories, Boolean favorite, String reference) {
+    }
+
+    /**
+     * インポート結果。aborted は入力の途中で読み込みを中止した場合の理由（正常終了時は null）で、
+     * その場合もそれまでにコミットしたチャンクは登録済み。
+     */
+    public record ImportResult(long imported, long categoryRows, long skipped, long elapsedMillis,
+                               List<String> errors, String aborted) {
+
+        public double rowsPerSecond() {
+            return elapsedMillis > 0 ? imported * 1000.0 / elapsedMillis : imported;
+        }
+    }
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final TransactionTemplate transactionTemplate;
+
+    public RecipeImportService(PlatformTransactionManager transactionManager) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * in を最後まで読み込んで登録する。in は呼び出し側で閉じる。
+     * 不正な行はスキップし、JSON として読めなくなった時点で中止する。
+     */
+    public ImportResult importRecipes(InputStream in) throws IOException {
+        long start = System.currentTimeMillis();
+        long imported = 0;
+        long categoryRows = 0;
+        long skipped = 0;
+        List<String> errors = new ArrayList<>();
+        String aborted = null;
+
+        List<Recipe> chunk = new ArrayList<>(CHUNK_SIZE);
+        try (MappingIterator<ImportRow> rows = objectMapper.readerFor(ImportRow.class).readValues(in)) {
+            while (true) {
+                ImportRow row;
+                long line = rows.getCurrentLocation().getLineNr();
+                try {
+                    if (!rows.hasNextValue()) {
+                        break;
+                    }
+                    line = rows.getCurrentLocation().getLineNr();
+                    row = rows.nextValue();
+                } catch (JsonProcessingException e) {
+                    aborted = line + "行目付近: " + e.getOriginalMessage();
+                    break;
+                }
+
+                String error = validate(row);
+                if (error != null) {
+                    skipped++;
+                    if (errors.size() < MAX_REPORTED_ERRORS) {
+                        errors.add(line + "行目: " + error);
+                    }
+                    continue;
+                }
+
+                chunk.add(toRecipe(row));
+                if (chunk.size() == CHUNK_SIZE) {
+                    try {
+                        categoryRows += persistChunk(chunk);
+                    } catch (RuntimeException e) {
+                        aborted = line + "行目までのチャンクの登録に失敗しました: " + e.getMessage();
+                        chunk.clear();
+                        break;
+                    }
+                    imported += chunk.size();
+                    chunk.clear();
+                }
+            }
+        }
+        if (!chunk.isEmpty()) {
+            try {
+                categoryRows += persistChunk(chunk);
+                imported += chunk.size();
+            } catch (RuntimeException e) {
+                aborted = "最後のチャンクの登録に失敗しました: " + e.getMessage();
+            }
+        }
+
+        return new ImportResult(imported, categoryRows, skipped, System.currentTimeMillis() - start,
+                errors, aborted);
+    }
+
+    // チャンクを1トランザクションで登録し、コミット後に索引へ反映する
+    private long persistChunk(List<Recipe> chunk) {
+        transactionTemplate.executeWithoutResult(status -> {
+            for (Recipe recipe : chunk) {
+                entityManager.persist(recipe);
+            }
+            entityManager.flush();
+            entityManager.clear();
+        });
+
+        long categoryRows = 0;
+        for (Recipe recipe : chunk) {
+            categoryRows += recipe.getCategories().size();
+            eventPublisher.publishEvent(RecipeChangedEvent.saved(recipe));
+        }
+        return categoryRows;
+    }
+
+    private static String validate(ImportRow row) {
+        if (row == null) {
+            return "空の行です";
+        }
+        if (row.title() == null || row.title().trim().isEmpty()) {
+            return "タイトルは必須です";
+        }
+        if (row.title().trim().length() > MAX_TITLE_LENGTH
+                || length(row.ingredients()) > MAX_INGREDIENTS_LENGTH
+                || length(row.instructions()) > MAX_INSTRUCTIONS_LENGTH
+                || length(row.reference()) > MAX_REFERENCE_LENGTH) {
+            return "文字数が上限を超えています";
+        }
+        Set<String> categories = normalizeCategories(row.categories());
+        if (categories.size() > Recipe.MAX_CATEGORIES) {
+            return "カテゴリは" + Recipe.MAX_CATEGORIES + "つまでしか設定できません";
+        }
+        for (String category : categories) {
+            if (category.length() > MAX_CATEGORY_LENGTH) {
+                return "カテゴリ名が長すぎます: " + category;
+            }
+        }
+        return null;
+    }
+
+    // フォームからの登録と同じく、タイトルを trim し空の材料・作り方は空文字にする
+    private static Recipe toRecipe(ImportRow row) {
+        Recipe recipe = new Recipe();
+        recipe.setTitle(row.title().trim());
+        recipe.setIngredients(row.ingredients() != null ? row.ingredients() : "");
+        recipe.setInstructions(row.instructions() != null ? row.instructions() : "");
+        recipe.setCategories(normalizeCategories(row.categories()));
+        recipe.setFavorite(Boolean.TRUE.equals(row.favorite()));
+        recipe.setReference(row.reference());
+        return recipe;
+    }
+
+    private static Set<String> normalizeCategories(List<String> categories) {
+        Set<String> normalized = new LinkedHashSet<>();
+        if (categories != null) {
+            for (String category : categories) {
+                if (category != null && !category.trim().isEmpty()) {
+                    normalized.add(category.trim());
+                }
+            }
+        }
+        return normalized;
+    }
+
+    private static int length(String value) {
+        return value != null ? value.length() : 0;
+    }
+}
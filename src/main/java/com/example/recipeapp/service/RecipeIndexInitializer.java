@@ -0,0 +1,50 @@
+package com.example.recipeapp.service;
+
+import com.example.recipeapp.model.Recipe;
+import com.example.recipeapp.repository.RecipeRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.stereotype.Component;
+
+/**
+ * 起動時に全レシピを一度だけ走査し、LOADED イベントとして各インメモリ索引へ流し込む。
+ * 走査はキーセットページングで行うため、件数が増えてもメモリ使用量は一定。
+ */
+@Component
+public class RecipeIndexInitializer {
+
+    private static final Logger log = LoggerFactory.getLogger(RecipeIndexInitializer.class);
+
+    private static final int BATCH_SIZE = 500;
+
+    @Autowired
+    private RecipeRepository recipeRepository;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadIndexes() {
+        long start = System.currentTimeMillis();
+        long cursor = 0L;
+        int count = 0;
+
+        Slice<Recipe> page;
+        do {
+            page = recipeRepository.scanAfter(cursor, PageRequest.of(0, BATCH_SIZE));
+            for (Recipe recipe : page.getContent()) {
+                eventPublisher.publishEvent(RecipeChangedEvent.loaded(recipe));
+                cursor = recipe.getId();
+                count++;
+            }
+        } while (page.hasNext());
+
+        log.info("レシピ索引の初期化完了: {}件 ({}ms)", count, System.currentTimeMillis() - start);
+    }
+}
@@ -0,0 +1,156 @@
+package com.example.recipeapp.service;
+
+import com.example.recipeapp.model.Recipe;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * ランダムレシピ用の ID プール。
+ * 全体とカテゴリごとに ID の配列を保持し、RecipeChangedEvent で差分更新する。
+ * 抽選は配列の添字を選ぶだけなのでテーブル件数に関係なく O(取得件数)。
+ */
+@Service
+public class RecipeRandomSampler {
+
+    private final IdPool allIds = new IdPool();
+    private final Map<String, IdPool> categoryIds = new HashMap<>();
+    private final Map<Long, Set<String>> categoriesById = new HashMap<>();
+
+    @EventListener
+    @Order(RecipeChangedEvent.INDEX_ORDER)
+    public void onRecipeChanged(RecipeChangedEvent event) {
+        switch (event.type()) {
+            case LOADED, SAVED -> put(event.recipe());
+            case DELETED -> remove(event.recipeId());
+            case CLEARED -> clear();
+        }
+    }
+
+    public synchronized void put(Recipe recipe) {
+        if (recipe == null || recipe.getId() == null) {
+            return;
+        }
+        Long id = recipe.getId();
+        removeFromCategories(id);
+        Set<String> categories = recipe.getCategories() != null ? Set.copyOf(recipe.getCategories()) : Set.of();
+        categoriesById.put(id, categories);
+        allIds.add(id);
+        for (String category : categories) {
+            categoryIds.computeIfAbsent(category, key -> new IdPool()).add(id);
+        }
+    }
+
+    public synchronized void remove(Long id) {
+        if (id == null) {
+            return;
+        }
+        removeFromCategories(id);
+        categoriesById.remove(id);
+        allIds.remove(id);
+    }
+
+    public synchronized void clear() {
+        allIds.clear();
+        categoryIds.clear();
+        categoriesById.clear();
+    }
+
+    /**
+     * 重複なしで最大 count 件の ID を無作為に選ぶ。
+     * category が指定された場合はそのカテゴリのレシピから選ぶ。
+     */
+    public synchronized List<Long> sample(int count, String category) {
+        IdPool pool = category == null || category.isBlank() ? allIds : categoryIds.get(category.trim());
+        if (pool == null || pool.size == 0 || count <= 0) {
+            return List.of();
+        }
+        int n = pool.size;
+        int k = Math.min(count, n);
+
+        // Floyd のアルゴリズム：k 回の乱数で重複のない添字を選ぶ
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        Set<Integer> picked = new HashSet<>();
+        List<Long> ids = new ArrayList<>(k);
+        for (int j = n - k; j < n; j++) {
+            int t = random.nextInt(j + 1);
+            int index = picked.add(t) ? t : j;
+            if (index == j) {
+                picked.add(j);
+            }
+            ids.add(pool.ids[index]);
+        }
+        // Floyd の方法は選ばれる順序に偏りがあるため並びだけシャッフルする
+        for (int i = ids.size() - 1; i > 0; i--) {
+            int swap = random.nextInt(i + 1);
+            Long tmp = ids.get(i);
+            ids.set(i, ids.get(swap));
+            ids.set(swap, tmp);
+        }
+        return ids;
+    }
+
+    private void removeFromCategories(Long id) {
+        Set<String> previous = categoriesById.get(id);
+        if (previous == null) {
+            return;
+        }
+        for (String category : previous) {
+            IdPool pool = categoryIds.get(category);
+            if (pool != null) {
+                pool.remove(id);
+                if (pool.size == 0) {
+                    categoryIds.remove(category);
+                }
+            }
+        }
+    }
+
+    // 末尾との入れ替えで O(1) 削除できる ID 配列
+    private static final class IdPool {
+        private long[] ids = new long[16];
+        private int size;
+        private final Map<Long, Integer> positions = new HashMap<>();
+
+        void add(Long id) {
+            if (positions.containsKey(id)) {
+                return;
+            }
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            ids[size] = id;
+            positions.put(id, size);
+            size++;
+        }
+
+        void remove(Long id) {
+            Integer position = positions.remove(id);
+            if (position == null) {
+                return;
+            }
+            int last = size - 1;
+            if (position != last) {
+                long moved = ids[last];
+                ids[position] = moved;
+                positions.put(moved, position);
+            }
+            size--;
+        }
+
+        void clear() {
+            ids = new long[16];
+            size = 0;
+            positions.clear();
+        }
+    }
+}
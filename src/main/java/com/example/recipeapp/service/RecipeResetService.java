@@ -0,0 +1,218 @@
+package com.example.recipeapp.service;
+
+import com.example.recipeapp.repository.RecipeRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 全データリセットをバックグラウンドのジョブとして実行する。
+ * レシピは id の範囲ごとに recipe_category → recipe の順で DELETE 文をまとめて発行し（1範囲1トランザクション）、
+ * 全件消えたら CLEARED を通知して索引をリセットしてから、画像ファイルを専用のプールで並列に削除する。
+ * 同時に実行できるジョブは1つだけで、進捗と処理速度は status() で取得できる。
+ */
+@Service
+public class RecipeResetService {
+
+    private static final Logger log = LoggerFactory.getLogger(RecipeResetService.class);
+
+    public enum State {
+        RUNNING, COMPLETED, FAILED
+    }
+
+    public enum Phase {
+        /** レシピの削除中 */
+        RECIPES,
+        /** 画像ファイルの削除中 */
+        FILES,
+        DONE
+    }
+
+    /**
+     * ジョブの進捗のスナップショット。速度は開始（画像は画像削除の開始）からの平均。
+     */
+    public record Status(String jobId, State state, Phase phase,
+                         long totalRecipes, long deletedRecipes, long totalImages, long processedImages,
+                         long elapsedMillis, double recipesPerSecond, double imagesPerSecond, String error) {
+    }
+
+    private static final class Job {
+        final String id = UUID.randomUUID().toString();
+        final long startNanos = System.nanoTime();
+        final AtomicLong deletedRecipes = new AtomicLong();
+        final LongAdder processedImages = new LongAdder();
+        volatile State state = State.RUNNING;
+        volatile Phase phase = Phase.RECIPES;
+        volatile long totalRecipes;
+        volatile long totalImages;
+        volatile long filesStartNanos;
+        volatile long finishedNanos;
+        volatile String error;
+
+        Status snapshot() {
+            long end = finishedNanos != 0 ? finishedNanos : System.nanoTime();
+            long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(end - startNanos);
+            long fileMillis = filesStartNanos != 0 ? TimeUnit.NANOSECONDS.toMillis(end - filesStartNanos) : 0;
+            long images = processedImages.sum();
+            return new Status(id, state, phase, totalRecipes, deletedRecipes.get(), totalImages, images,
+                    elapsedMillis, perSecond(deletedRecipes.get(), elapsedMillis), perSecond(images, fileMillis), error);
+        }
+
+        private static double perSecond(long count, long millis) {
+            return millis > 0 ? count * 1000.0 / millis : count;
+        }
+    }
+
+    @Autowired
+    private RecipeRepository recipeRepository;
+
+    @Autowired
+    private ImageStore imageStore;
+
+    @Autowired
+    private RecipeIndexInitializer recipeIndexInitializer;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    private final TransactionTemplate transactionTemplate;
+    private final int chunkSize;
+    private final int fileConcurrency;
+    private final boolean virtualThreads;
+    private final ExecutorService jobExecutor;
+
+    // 最後に開始したジョブ
+    private volatile Job latest;
+
+    public RecipeResetService(PlatformTransactionManager transactionManager,
+                              @Value("${recipeapp.reset.chunk-size:1000}") int chunkSize,
+                              @Value("${recipeapp.reset.file-concurrency:4}") int fileConcurrency,
+                              @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.chunkSize = Math.max(1, chunkSize);
+        this.fileConcurrency = Math.max(1, fileConcurrency);
+        this.virtualThreads = virtualThreads;
+        this.jobExecutor = Executors.newSingleThreadExecutor(virtualThreads
+                ? Thread.ofVirtual().name("recipe-reset").factory()
+                : Thread.ofPlatform().name("recipe-reset").daemon(true).factory());
+    }
+
+    /**
+     * リセットを開始する。既に実行中なら空を返す。
+     */
+    public synchronized Optional<Status> start() {
+        Job running = latest;
+        if (running != null && running.state == State.RUNNING) {
+            return Optional.empty();
+        }
+        Job job = new Job();
+        latest = job;
+        jobExecutor.execute(() -> run(job));
+        return Optional.of(job.snapshot());
+    }
+
+    public Optional<Status> status(String jobId) {
+        Job job = latest;
+        return job != null && job.id.equals(jobId) ? Optional.of(job.snapshot()) : Optional.empty();
+    }
+
+    public Optional<Status> latest() {
+        Job job = latest;
+        return job != null ? Optional.of(job.snapshot()) : Optional.empty();
+    }
+
+    private void run(Job job) {
+        log.info("全データリセット処理開始: job={}", job.id);
+        boolean recipesDeleted = false;
+        try {
+            job.totalRecipes = recipeRepository.count();
+            Set<String> imagePaths = deleteRecipes(job);
+            recipesDeleted = true;
+            eventPublisher.publishEvent(RecipeChangedEvent.cleared());
+
+            job.phase = Phase.FILES;
+            job.totalImages = imagePaths.size();
+            job.filesStartNanos = System.nanoTime();
+            deleteFiles(imagePaths, job);
+
+            job.phase = Phase.DONE;
+            job.state = State.COMPLETED;
+        } catch (Exception e) {
+            job.error = e.getMessage();
+            job.state = State.FAILED;
+            log.error("データリセットエラー: job={}", job.id, e);
+            if (!recipesDeleted) {
+                // 途中まで削除したレシピが索引に残らないよう、残っているレシピから索引を作り直す
+                eventPublisher.publishEvent(RecipeChangedEvent.cleared());
+                recipeIndexInitializer.loadIndexes();
+            }
+        } finally {
+            job.finishedNanos = System.nanoTime();
+        }
+        Status status = job.snapshot();
+        log.info("全データリセット{}: 削除されたレシピ {}件、画像 {}件 ({}ms)",
+                status.state() == State.COMPLETED ? "完了" : "中断",
+                status.deletedRecipes(), status.processedImages(), status.elapsedMillis());
+    }
+
+    // 削除したレシピが参照していた画像のパスを返す
+    private Set<String> deleteRecipes(Job job) {
+        Set<String> imagePaths = new HashSet<>();
+        long cursor = 0L;
+        while (true) {
+            long from = cursor;
+            Long to = transactionTemplate.execute(status -> {
+                List<Long> ids = recipeRepository.findIdsAfter(from, PageRequest.of(0, chunkSize));
+                if (ids.isEmpty()) {
+                    return null;
+                }
+                Long last = ids.get(ids.size() - 1);
+                imagePaths.addAll(recipeRepository.findImagePathsInRange(from, last));
+                recipeRepository.deleteCategoriesInRange(from, last);
+                job.deletedRecipes.addAndGet(recipeRepository.deleteInRange(from, last));
+                return last;
+            });
+            if (to == null) {
+                return imagePaths;
+            }
+            cursor = to;
+        }
+    }
+
+    private void deleteFiles(Set<String> imagePaths, Job job) throws InterruptedException {
+        ThreadFactory factory = virtualThreads
+                ? Thread.ofVirtual().name("reset-file-", 1).factory()
+                : Thread.ofPlatform().name("reset-file-", 1).daemon(true).factory();
+        ExecutorService pool = Executors.newFixedThreadPool(fileConcurrency, factory);
+        try {
+            imageStore.purge(imagePaths, pool, job.processedImages::increment);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        jobExecutor.shutdown();
+        jobExecutor.awaitTermination(10, TimeUnit.SECONDS);
+    }
+}
@@ -0,0 +1,410 @@
+package com.example.recipeapp.service;
+
+import com.example.recipeapp.model.Recipe;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Service;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * タイトル・材料・カテゴリの転置インデックス。
+ * 文字 bigram（1文字の検索語は unigram）で索引を作るため、麻婆 のような
+ * かな・漢字の部分一致もデータベースを走査せずに検索できる。
+ * 候補は bigram の積集合で絞り込み、最後に部分一致で検証するので結果は
+ * 従来の contains() による検索と一致する。
+ */
+@Service
+public class RecipeSearchIndex {
+
+    // スコアの重み（タイトル > カテゴリ > 材料）
+    private static final int TITLE_WEIGHT = 10;
+    private static final int TITLE_PREFIX_BONUS = 5;
+    private static final int TITLE_EXACT_BONUS = 10;
+    private static final int CATEGORY_WEIGHT = 4;
+    private static final int INGREDIENT_WEIGHT = 2;
+
+    // カテゴリを連結するときの区切り文字（検索語には含まれない）
+    private static final char CATEGORY_SEPARATOR = '\n';
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Long, SearchDocument> documents = new HashMap<>();
+    private final Set<Long> favoriteIds = new HashSet<>();
+    private final Map<Integer, Set<Long>> titlePostings = new HashMap<>();
+    private final Map<Integer, Set<Long>> ingredientPostings = new HashMap<>();
+    private final Map<Integer, Set<Long>> categoryPostings = new HashMap<>();
+
+    /**
+     * 検索条件。null または空文字の項目は条件に含めない。
+     * q はタイトル・カテゴリ・材料のいずれかに一致すればよい横断検索。
+     */
+    public record SearchQuery(String q, String title, String category, String ingredient, Boolean favorite) {
+    }
+
+    /**
+     * 検索結果。ids は並び順どおりのページ、total は一致件数の合計。
+     */
+    public record SearchResult(List<Long> ids, int total) {
+    }
+
+    // 索引に保持する正規化済みの文書
+    private record SearchDocument(Long id, String title, String ingredients, String categories, boolean favorite) {
+    }
+
+    // 絞り込みに使う条件（フィールドと正規化済みの検索語）
+    private record Term(Field field, String text) {
+    }
+
+    private enum Field { ANY, TITLE, CATEGORY, INGREDIENT }
+
+    private record Match(Long id, int score) {
+    }
+
+    @EventListener
+    @Order(RecipeChangedEvent.INDEX_ORDER)
+    public void onRecipeChanged(RecipeChangedEvent event) {
+        switch (event.type()) {
+            case LOADED, SAVED -> index(event.recipe());
+            case FAVORITE_CHANGED -> setFavorite(event.recipeId(), event.favorite());
+            case DELETED -> remove(event.recipeId());
+            case CLEARED -> clear();
+        }
+    }
+
+    /**
+     * レシピを索引に追加する。既に索引済みの場合は差し替える。
+     */
+    public void index(Recipe recipe) {
+        if (recipe == null || recipe.getId() == null) {
+            return;
+        }
+        SearchDocument doc = new SearchDocument(
+                recipe.getId(),
+                normalize(recipe.getTitle()),
+                normalize(recipe.getIngredients()),
+                normalize(joinCategories(recipe.getCategories())),
+                recipe.isFavorite());
+
+        lock.writeLock().lock();
+        try {
+            removeInternal(doc.id());
+            documents.put(doc.id(), doc);
+            if (doc.favorite()) {
+                favoriteIds.add(doc.id());
+            }
+            addPostings(titlePostings, doc.title(), doc.id());
+            addPostings(ingredientPostings, doc.ingredients(), doc.id());
+            addPostings(categoryPostings, doc.categories(), doc.id());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * お気に入りだけを更新する（本文の索引は作り直さない）。未索引のレシピは無視する。
+     */
+    public void setFavorite(Long id, boolean favorite) {
+        lock.writeLock().lock();
+        try {
+            SearchDocument doc = documents.get(id);
+            if (doc == null || doc.favorite() == favorite) {
+                return;
+            }
+            documents.put(id, new SearchDocument(id, doc.title(), doc.ingredients(), doc.categories(), favorite));
+            if (favorite) {
+                favoriteIds.add(id);
+            } else {
+                favoriteIds.remove(id);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 索引上のお気に入りの状態。未索引なら null。
+     */
+    public Boolean isFavorite(Long id) {
+        lock.readLock().lock();
+        try {
+            SearchDocument doc = documents.get(id);
+            return doc != null ? doc.favorite() : null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public void remove(Long id) {
+        if (id == null) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            removeInternal(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            documents.clear();
+            favoriteIds.clear();
+            titlePostings.clear();
+            ingredientPostings.clear();
+            categoryPostings.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return documents.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 条件に一致するレシピ ID をスコア順（同点は ID 昇順）に返す。
+     * 文字列の条件が無い場合は ID 昇順。
+     */
+    public SearchResult search(SearchQuery query, int offset, int limit) {
+        List<Term> terms = new ArrayList<>();
+        addTerm(terms, Field.ANY, query.q());
+        addTerm(terms, Field.TITLE, query.title());
+        addTerm(terms, Field.CATEGORY, query.category());
+        addTerm(terms, Field.INGREDIENT, query.ingredient());
+        Boolean favorite = query.favorite();
+
+        int pageEnd = offset + limit;
+        // 上位 pageEnd 件だけを保持するヒープ（先頭が最も順位の低い結果）
+        Comparator<Match> ranking = Comparator.comparingInt(Match::score).reversed()
+                .thenComparing(Match::id);
+        PriorityQueue<Match> top = new PriorityQueue<>(ranking.reversed());
+        int total = 0;
+
+        lock.readLock().lock();
+        try {
+            for (Long id : candidates(terms, favorite)) {
+                SearchDocument doc = documents.get(id);
+                if (doc == null || (favorite != null && doc.favorite() != favorite)) {
+                    continue;
+                }
+                int score = score(doc, terms);
+                if (score < 0) {
+                    continue;
+                }
+                total++;
+                Match match = new Match(id, score);
+                if (top.size() < pageEnd) {
+                    top.add(match);
+                } else if (pageEnd > 0 && ranking.compare(match, top.peek()) < 0) {
+                    top.poll();
+                    top.add(match);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        List<Match> ranked = new ArrayList<>(top);
+        ranked.sort(ranking);
+        List<Long> ids = new ArrayList<>();
+        for (int i = offset; i < ranked.size(); i++) {
+            ids.add(ranked.get(i).id());
+        }
+        return new SearchResult(ids, total);
+    }
+
+    // 転置リストから検証対象の候補を選ぶ（最も小さい集合を使う）
+    private Collection<Long> candidates(List<Term> terms, Boolean favorite) {
+        Collection<Long> best = Boolean.TRUE.equals(favorite) ? favoriteIds : documents.keySet();
+        for (Term term : terms) {
+            Collection<Long> postings = switch (term.field()) {
+                case TITLE -> smallestPostings(titlePostings, term.text());
+                case CATEGORY -> smallestPostings(categoryPostings, term.text());
+                case INGREDIENT -> smallestPostings(ingredientPostings, term.text());
+                case ANY -> {
+                    Set<Long> union = new HashSet<>(smallestPostings(titlePostings, term.text()));
+                    union.addAll(smallestPostings(categoryPostings, term.text()));
+                    union.addAll(smallestPostings(ingredientPostings, term.text()));
+                    yield union;
+                }
+            };
+            if (postings.size() < best.size()) {
+                best = postings;
+            }
+        }
+        return best;
+    }
+
+    private Set<Long> smallestPostings(Map<Integer, Set<Long>> postings, String text) {
+        Set<Long> smallest = null;
+        for (int gram : grams(text)) {
+            Set<Long> ids = postings.get(gram);
+            if (ids == null) {
+                return Set.of();
+            }
+            if (smallest == null || ids.size() < smallest.size()) {
+                smallest = ids;
+            }
+        }
+        return smallest != null ? smallest : Set.of();
+    }
+
+    // すべての条件を満たせばスコア（0以上）、満たさなければ -1
+    private int score(SearchDocument doc, List<Term> terms) {
+        int score = 0;
+        for (Term term : terms) {
+            String text = term.text();
+            switch (term.field()) {
+                case TITLE -> {
+                    if (!doc.title().contains(text)) {
+                        return -1;
+                    }
+                    score += titleScore(doc, text);
+                }
+                case CATEGORY -> {
+                    if (!doc.categories().contains(text)) {
+                        return -1;
+                    }
+                    score += CATEGORY_WEIGHT;
+                }
+                case INGREDIENT -> {
+                    if (!doc.ingredients().contains(text)) {
+                        return -1;
+                    }
+                    score += INGREDIENT_WEIGHT;
+                }
+                case ANY -> {
+                    int anyScore = 0;
+                    if (doc.title().contains(text)) {
+                        anyScore += titleScore(doc, text);
+                    }
+                    if (doc.categories().contains(text)) {
+                        anyScore += CATEGORY_WEIGHT;
+                    }
+                    if (doc.ingredients().contains(text)) {
+                        anyScore += INGREDIENT_WEIGHT;
+                    }
+                    if (anyScore == 0) {
+                        return -1;
+                    }
+                    score += anyScore;
+                }
+            }
+        }
+        return score;
+    }
+
+    private int titleScore(SearchDocument doc, String text) {
+        int score = TITLE_WEIGHT;
+        if (doc.title().equals(text)) {
+            score += TITLE_EXACT_BONUS;
+        } else if (doc.title().startsWith(text)) {
+            score += TITLE_PREFIX_BONUS;
+        }
+        return score;
+    }
+
+    private void removeInternal(Long id) {
+        SearchDocument old = documents.remove(id);
+        if (old == null) {
+            return;
+        }
+        favoriteIds.remove(id);
+        removePostings(titlePostings, old.title(), id);
+        removePostings(ingredientPostings, old.ingredients(), id);
+        removePostings(categoryPostings, old.categories(), id);
+    }
+
+    private static void addPostings(Map<Integer, Set<Long>> postings, String text, Long id) {
+        for (int gram : indexGrams(text)) {
+            postings.computeIfAbsent(gram, k -> new HashSet<>()).add(id);
+        }
+    }
+
+    private static void removePostings(Map<Integer, Set<Long>> postings, String text, Long id) {
+        for (int gram : indexGrams(text)) {
+            Set<Long> ids = postings.get(gram);
+            if (ids != null) {
+                ids.remove(id);
+                if (ids.isEmpty()) {
+                    postings.remove(gram);
+                }
+            }
+        }
+    }
+
+    private static void addTerm(List<Term> terms, Field field, String raw) {
+        String text = normalize(raw).trim();
+        if (!text.isEmpty()) {
+            terms.add(new Term(field, text));
+        }
+    }
+
+    // 索引用：全 unigram と全 bigram
+    private static Set<Integer> indexGrams(String text) {
+        Set<Integer> grams = new HashSet<>();
+        for (int i = 0; i < text.length(); i++) {
+            grams.add(unigram(text.charAt(i)));
+            if (i + 1 < text.length()) {
+                grams.add(bigram(text.charAt(i), text.charAt(i + 1)));
+            }
+        }
+        return grams;
+    }
+
+    // 検索用：1文字なら unigram、それ以外は bigram のみ
+    private static Set<Integer> grams(String text) {
+        if (text.length() == 1) {
+            return Set.of(unigram(text.charAt(0)));
+        }
+        Set<Integer> grams = new HashSet<>();
+        for (int i = 0; i + 1 < text.length(); i++) {
+            grams.add(bigram(text.charAt(i), text.charAt(i + 1)));
+        }
+        return grams;
+    }
+
+    // unigram は 0〜0xFFFF、bigram は先頭文字が \u0000 以外なので必ず 0x10000 以上になり衝突しない
+    private static int unigram(char c) {
+        return c;
+    }
+
+    private static int bigram(char first, char second) {
+        return (first << 16) | second;
+    }
+
+    /**
+     * 検索用の正規化（NFKC で全角英数・半角カナを統一し、小文字化）。
+     */
+    static String normalize(String text) {
+        if (text == null || text.isEmpty()) {
+            return "";
+        }
+        return Normalizer.normalize(text, Normalizer.Form.NFKC).toLowerCase(Locale.ROOT);
+    }
+
+    private static String joinCategories(Set<String> categories) {
+        if (categories == null || categories.isEmpty()) {
+            return "";
+        }
+        return String.join(String.valueOf(CATEGORY_SEPARATOR), categories);
+    }
+}
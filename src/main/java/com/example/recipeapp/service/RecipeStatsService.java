@@ -0,0 +1,126 @@
+package com.example.recipeapp.service;
+
+import com.example.recipeapp.model.Recipe;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * レシピ件数・お気に入り件数・カテゴリ別件数のライブ集計。
+ * 起動時に一度だけ読み込み、以降は RecipeChangedEvent で差分更新するので
+ * 統計APIはデータベースにアクセスせずカテゴリ数に比例するコストで応答できる。
+ */
+@Service
+public class RecipeStatsService {
+
+    // 差分計算のために保持するレシピごとの集計対象
+    private record Snapshot(boolean favorite, Set<String> categories) {
+    }
+
+    /**
+     * 集計結果のコピー。categoryCounts は変更不可。
+     */
+    public record Stats(long totalRecipes, long favoriteRecipes, Map<String, Long> categoryCounts) {
+    }
+
+    private final Map<Long, Snapshot> snapshots = new HashMap<>();
+    private final Map<String, Long> categoryCounts = new HashMap<>();
+    private long favoriteCount;
+
+    @EventListener
+    @Order(RecipeChangedEvent.INDEX_ORDER)
+    public void onRecipeChanged(RecipeChangedEvent event) {
+        switch (event.type()) {
+            case LOADED, SAVED -> put(event.recipe());
+            case FAVORITE_CHANGED -> setFavorite(event.recipeId(), event.favorite());
+            case DELETED -> remove(event.recipeId());
+            case CLEARED -> clear();
+        }
+    }
+
+    public synchronized void put(Recipe recipe) {
+        if (recipe == null || recipe.getId() == null) {
+            return;
+        }
+        Set<String> categories = recipe.getCategories() != null ? Set.copyOf(recipe.getCategories()) : Set.of();
+        Snapshot previous = snapshots.put(recipe.getId(), new Snapshot(recipe.isFavorite(), categories));
+        if (previous != null) {
+            subtract(previous);
+        }
+        add(snapshots.get(recipe.getId()));
+    }
+
+    public synchronized void setFavorite(Long id, boolean favorite) {
+        Snapshot previous = snapshots.get(id);
+        if (previous == null || previous.favorite() == favorite) {
+            return;
+        }
+        snapshots.put(id, new Snapshot(favorite, previous.categories()));
+        favoriteCount += favorite ? 1 : -1;
+    }
+
+    public synchronized void remove(Long id) {
+        if (id == null) {
+            return;
+        }
+        Snapshot previous = snapshots.remove(id);
+        if (previous != null) {
+            subtract(previous);
+        }
+    }
+
+    public synchronized void clear() {
+        snapshots.clear();
+        categoryCounts.clear();
+        favoriteCount = 0;
+    }
+
+    public synchronized Stats getStats() {
+        return new Stats(snapshots.size(), favoriteCount, Map.copyOf(categoryCounts));
+    }
+
+    public synchronized long getTotalCount() {
+        return snapshots.size();
+    }
+
+    public synchronized long getFavoriteCount() {
+        return favoriteCount;
+    }
+
+    public synchronized long getCategoryCount(String category) {
+        return categoryCounts.getOrDefault(category, 0L);
+    }
+
+    /**
+     * カテゴリを使用回数の降順で返す。
+     */
+    public List<Map.Entry<String, Long>> getCategoriesByCount() {
+        List<Map.Entry<String, Long>> sorted = new ArrayList<>(getStats().categoryCounts().entrySet());
+        sorted.sort(Map.Entry.<String, Long>comparingByValue().reversed());
+        return sorted;
+    }
+
+    private void add(Snapshot snapshot) {
+        if (snapshot.favorite()) {
+            favoriteCount++;
+        }
+        for (String category : snapshot.categories()) {
+            categoryCounts.merge(category, 1L, Long::sum);
+        }
+    }
+
+    private void subtract(Snapshot snapshot) {
+        if (snapshot.favorite()) {
+            favoriteCount--;
+        }
+        for (String category : snapshot.categories()) {
+            categoryCounts.computeIfPresent(category, (key, count) -> count > 1 ? count - 1 : null);
+        }
+    }
+}
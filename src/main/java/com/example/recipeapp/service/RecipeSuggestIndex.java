@@ -0,0 +1,245 @@
+package com.example.recipeapp.service;
+
+import com.example.recipeapp.model.Recipe;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 検索欄の入力補完用の前方一致索引。
+ * 正規化したタイトル・材料名（IngredientNames で取り出したもの）・カテゴリ名を TreeMap に並べて持ち、
+ * 前方一致する範囲だけを走査して、その語を含むレシピの件数が多い順に返す。
+ * レシピの保存・削除のたびにそのレシピの語だけを差し替えるので、DB には問い合わせない。
+ * 1〜2文字の前方一致は範囲が広いので、結果を索引の世代と一緒に覚えておき、変更が無い間は使い回す。
+ */
+@Service
+public class RecipeSuggestIndex {
+
+    // 前方一致の範囲の上限（正規化後の文字列には現れない）
+    private static final char RANGE_END = '\uffff';
+
+    // 種類ごとの語を1つの並びに入れるための区切り（正規化後の文字列には現れない）
+    private static final char KIND_SEPARATOR = '\u0000';
+
+    private static final int MAX_TERM_LENGTH = 100;
+
+    // 結果を覚えておく前方一致の長さと件数（/api/suggest の limit の上限）
+    private static final int MEMO_PREFIX_LENGTH = 2;
+    private static final int MEMO_LIMIT = 50;
+    private static final int MEMO_MAX_ENTRIES = 10_000;
+
+    public enum Kind {
+        TITLE, INGREDIENT, CATEGORY
+    }
+
+    /**
+     * 補完候補。count はその語を含むレシピの件数。
+     */
+    public record Suggestion(String text, Kind kind, int count) {
+    }
+
+    // 1つの語の表示用の文字列と件数（ロックの内側でだけ変更する）
+    private static final class Entry {
+        final Kind kind;
+        String text;
+        int count;
+
+        Entry(Kind kind, String text) {
+            this.kind = kind;
+            this.text = text;
+        }
+    }
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final TreeMap<String, Entry> entries = new TreeMap<>();
+    // レシピごとの語（キー → 表示用の文字列）。変更・削除のときに件数を減らすために使う
+    private final Map<Long, Map<String, String>> termsByRecipe = new HashMap<>();
+
+    // 索引を変更するたびに増やす（書き込みロックの内側でだけ変更する）
+    private long generation;
+
+    private record Memo(long generation, List<Suggestion> suggestions) {
+    }
+
+    private final Cache<String, Memo> memos = Caffeine.newBuilder()
+            .maximumSize(MEMO_MAX_ENTRIES)
+            .build();
+
+    @EventListener
+    @Order(RecipeChangedEvent.INDEX_ORDER)
+    public void onRecipeChanged(RecipeChangedEvent event) {
+        switch (event.type()) {
+            case LOADED, SAVED -> index(event.recipe());
+            case DELETED -> remove(event.recipeId());
+            case CLEARED -> clear();
+            default -> {
+            }
+        }
+    }
+
+    public void index(Recipe recipe) {
+        if (recipe == null || recipe.getId() == null) {
+            return;
+        }
+        Map<String, String> terms = new HashMap<>();
+        addTerm(terms, Kind.TITLE, recipe.getTitle());
+        for (String ingredient : IngredientNames.parse(recipe.getIngredients())) {
+            addTerm(terms, Kind.INGREDIENT, ingredient);
+        }
+        if (recipe.getCategories() != null) {
+            for (String category : recipe.getCategories()) {
+                addTerm(terms, Kind.CATEGORY, category);
+            }
+        }
+
+        lock.writeLock().lock();
+        try {
+            removeInternal(recipe.getId());
+            generation++;
+            termsByRecipe.put(recipe.getId(), terms);
+            terms.forEach((key, text) -> {
+                Entry entry = entries.computeIfAbsent(key, k -> new Entry(kindOf(k), text));
+                // 表示は最後に保存されたレシピの書き方に合わせる
+                entry.text = text;
+                entry.count++;
+            });
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Long id) {
+        if (id == null) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            removeInternal(id);
+            generation++;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            entries.clear();
+            termsByRecipe.clear();
+            generation++;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * prefix で始まる語を件数の多い順（同数なら短い順、文字列順）に limit 件返す。
+     */
+    public List<Suggestion> suggest(String prefix, int limit) {
+        String text = RecipeSearchIndex.normalize(prefix).strip();
+        if (text.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+        if (text.length() > MEMO_PREFIX_LENGTH || limit > MEMO_LIMIT) {
+            return rank(text, limit).suggestions();
+        }
+        Memo memo = memos.getIfPresent(text);
+        if (memo == null || memo.generation() != currentGeneration()) {
+            memo = rank(text, MEMO_LIMIT);
+            memos.put(text, memo);
+        }
+        List<Suggestion> suggestions = memo.suggestions();
+        return suggestions.size() > limit ? suggestions.subList(0, limit) : suggestions;
+    }
+
+    private long currentGeneration() {
+        lock.readLock().lock();
+        try {
+            return generation;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // 前方一致の範囲を走査して上位 limit 件を選ぶ（走査したときの世代と一緒に返す）
+    private Memo rank(String text, int limit) {
+        Comparator<Suggestion> ranking = Comparator.comparingInt(Suggestion::count).reversed()
+                .thenComparingInt(suggestion -> suggestion.text().length())
+                .thenComparing(Suggestion::text);
+        // 上位 limit 件だけを保持するヒープ（先頭が最も順位の低い候補）
+        PriorityQueue<Suggestion> top = new PriorityQueue<>(ranking.reversed());
+        long scannedGeneration;
+
+        lock.readLock().lock();
+        try {
+            scannedGeneration = generation;
+            NavigableMap<String, Entry> range = entries.subMap(text, true, text + RANGE_END, false);
+            for (Entry entry : range.values()) {
+                Suggestion suggestion = new Suggestion(entry.text, entry.kind, entry.count);
+                if (top.size() < limit) {
+                    top.add(suggestion);
+                } else if (ranking.compare(suggestion, top.peek()) < 0) {
+                    top.poll();
+                    top.add(suggestion);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        List<Suggestion> ranked = new ArrayList<>(top);
+        ranked.sort(ranking);
+        return new Memo(scannedGeneration, List.copyOf(ranked));
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return entries.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void removeInternal(Long id) {
+        Map<String, String> old = termsByRecipe.remove(id);
+        if (old == null) {
+            return;
+        }
+        for (String key : old.keySet()) {
+            Entry entry = entries.get(key);
+            if (entry != null && --entry.count <= 0) {
+                entries.remove(key);
+            }
+        }
+    }
+
+    // キーは「正規化した語 + 区切り + 種類」。同じ語でも種類が違えば別の候補になる
+    private static void addTerm(Map<String, String> terms, Kind kind, String raw) {
+        if (raw == null) {
+            return;
+        }
+        String text = raw.strip();
+        String normalized = RecipeSearchIndex.normalize(text).strip();
+        if (normalized.isEmpty() || normalized.length() > MAX_TERM_LENGTH) {
+            return;
+        }
+        terms.putIfAbsent(normalized + KIND_SEPARATOR + kind.ordinal(), text);
+    }
+
+    private static Kind kindOf(String key) {
+        return Kind.values()[key.charAt(key.length() - 1) - '0'];
+    }
+}
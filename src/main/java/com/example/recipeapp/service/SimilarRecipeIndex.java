@@ -0,0 +1,236 @@
+package com.example.recipeapp.service;
+
+import com.example.recipeapp.model.Recipe;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 似たレシピの索引（MinHash + LSH）。
+ * 材料名（IngredientNames で取り出して正規化したもの）とカテゴリを特徴の集合とし、レシピごとに
+ * HASH_COUNT 個の MinHash で署名を作る。署名を BANDS 個の帯に分け、帯ごとの値が一致するレシピを
+ * 同じバケットに入れておくので、似たレシピの候補は全件と比べずにバケットを引くだけで求まる。
+ * 候補は署名の一致率（Jaccard 係数の推定値）で並べる。1回に調べる候補は MAX_CANDIDATES 件までに抑えるので、
+ * レシピ数が増えても問い合わせの時間はほぼ一定になる。保存・削除のたびにそのレシピの署名だけを差し替える。
+ */
+@Service
+public class SimilarRecipeIndex {
+
+    // 16帯 × 4行：Jaccard 係数がおよそ 0.5 を超えると候補になりやすい
+    private static final int BANDS = 16;
+    private static final int ROWS = 4;
+    private static final int HASH_COUNT = BANDS * ROWS;
+
+    private static final int MAX_CANDIDATES = 500;
+
+    private static final String INGREDIENT_PREFIX = "i:";
+    private static final String CATEGORY_PREFIX = "c:";
+
+    /**
+     * 似たレシピ。similarity は Jaccard 係数の推定値（0〜1）。
+     */
+    public record Similar(Long recipeId, double similarity) {
+    }
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Long, long[]> signatures = new HashMap<>();
+    // 帯の値（帯の番号を含めたハッシュ）→ その帯が一致するレシピ
+    private final Map<Long, Set<Long>> buckets = new HashMap<>();
+
+    @EventListener
+    @Order(RecipeChangedEvent.INDEX_ORDER)
+    public void onRecipeChanged(RecipeChangedEvent event) {
+        switch (event.type()) {
+            case LOADED, SAVED -> index(event.recipe());
+            case DELETED -> remove(event.recipeId());
+            case CLEARED -> clear();
+            default -> {
+            }
+        }
+    }
+
+    public void index(Recipe recipe) {
+        if (recipe == null || recipe.getId() == null) {
+            return;
+        }
+        long[] signature = signature(features(recipe));
+
+        lock.writeLock().lock();
+        try {
+            removeInternal(recipe.getId());
+            if (signature == null) {
+                return;
+            }
+            signatures.put(recipe.getId(), signature);
+            for (int band = 0; band < BANDS; band++) {
+                buckets.computeIfAbsent(bandKey(signature, band), key -> new LinkedHashSet<>()).add(recipe.getId());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Long id) {
+        if (id == null) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            removeInternal(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            signatures.clear();
+            buckets.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * id のレシピに似たレシピを似ている順（同じなら ID 昇順）に最大 limit 件返す。
+     * 未索引（材料もカテゴリも無いなど）なら空。
+     */
+    public List<Similar> similarTo(Long id, int limit) {
+        if (id == null || limit <= 0) {
+            return List.of();
+        }
+        Comparator<Similar> ranking = Comparator.comparingDouble(Similar::similarity).reversed()
+                .thenComparing(Similar::recipeId);
+        // 上位 limit 件だけを保持するヒープ（先頭が最も順位の低い結果）
+        PriorityQueue<Similar> top = new PriorityQueue<>(ranking.reversed());
+
+        lock.readLock().lock();
+        try {
+            long[] signature = signatures.get(id);
+            if (signature == null) {
+                return List.of();
+            }
+            Set<Long> seen = new HashSet<>();
+            seen.add(id);
+            // 帯を順に見て、候補が上限に達したら打ち切る（どの帯も一致しないものは候補にならない）
+            for (int band = 0; band < BANDS && seen.size() <= MAX_CANDIDATES; band++) {
+                Set<Long> bucket = buckets.get(bandKey(signature, band));
+                if (bucket == null) {
+                    continue;
+                }
+                for (Long candidate : bucket) {
+                    if (!seen.add(candidate)) {
+                        continue;
+                    }
+                    Similar similar = new Similar(candidate, estimate(signature, signatures.get(candidate)));
+                    if (top.size() < limit) {
+                        top.add(similar);
+                    } else if (ranking.compare(similar, top.peek()) < 0) {
+                        top.poll();
+                        top.add(similar);
+                    }
+                    if (seen.size() > MAX_CANDIDATES) {
+                        break;
+                    }
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        List<Similar> ranked = new ArrayList<>(top);
+        ranked.sort(ranking);
+        return ranked;
+    }
+
+    private void removeInternal(Long id) {
+        long[] old = signatures.remove(id);
+        if (old == null) {
+            return;
+        }
+        for (int band = 0; band < BANDS; band++) {
+            long key = bandKey(old, band);
+            Set<Long> bucket = buckets.get(key);
+            if (bucket != null) {
+                bucket.remove(id);
+                if (bucket.isEmpty()) {
+                    buckets.remove(key);
+                }
+            }
+        }
+    }
+
+    private static Set<String> features(Recipe recipe) {
+        Set<String> features = new HashSet<>();
+        for (String name : IngredientNames.parse(recipe.getIngredients())) {
+            String normalized = RecipeSearchIndex.normalize(name).strip();
+            if (!normalized.isEmpty()) {
+                features.add(INGREDIENT_PREFIX + normalized);
+            }
+        }
+        if (recipe.getCategories() != null) {
+            for (String category : recipe.getCategories()) {
+                features.add(CATEGORY_PREFIX + category.strip());
+            }
+        }
+        return features;
+    }
+
+    // 特徴が無ければ null（どのレシピとも似ていないものとして扱う）
+    private static long[] signature(Set<String> features) {
+        if (features.isEmpty()) {
+            return null;
+        }
+        long[] signature = new long[HASH_COUNT];
+        Arrays.fill(signature, Long.MAX_VALUE);
+        for (String feature : features) {
+            long base = feature.hashCode() * 0x9E3779B97F4A7C15L;
+            for (int i = 0; i < HASH_COUNT; i++) {
+                // ハッシュ関数 i は i を種にした混ぜ合わせ
+                long hash = mix(base + i * 0xBF58476D1CE4E5B9L);
+                if (hash < signature[i]) {
+                    signature[i] = hash;
+                }
+            }
+        }
+        return signature;
+    }
+
+    private static long bandKey(long[] signature, int band) {
+        long key = band;
+        for (int row = band * ROWS; row < (band + 1) * ROWS; row++) {
+            key = mix(key * 31 + signature[row]);
+        }
+        return key;
+    }
+
+    private static double estimate(long[] a, long[] b) {
+        int same = 0;
+        for (int i = 0; i < HASH_COUNT; i++) {
+            if (a[i] == b[i]) {
+                same++;
+            }
+        }
+        return (double) same / HASH_COUNT;
+    }
+
+    // SplitMix64 の最終段
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
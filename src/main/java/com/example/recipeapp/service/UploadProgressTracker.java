@@ -0,0 +1,116 @@
+package com.example.recipeapp.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MaxUploadSizeExceededException;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 画像アップロードの進捗。
+ * アップロード中のリクエストが受信したバイト数を記録し、別のリクエスト（進捗 API）から参照できるようにする。
+ * 進捗は一定時間参照されなければ破棄する。
+ */
+@Service
+public class UploadProgressTracker {
+
+    public enum State {
+        UPLOADING, COMPLETED, FAILED
+    }
+
+    /**
+     * 進捗のスナップショット。totalBytes は Content-Length が無ければ -1。
+     */
+    public record Progress(long receivedBytes, long totalBytes, State state, String imagePath, String error) {
+    }
+
+    private static final class Entry {
+        final AtomicLong received = new AtomicLong();
+        final long total;
+        volatile State state = State.UPLOADING;
+        volatile String imagePath;
+        volatile String error;
+
+        Entry(long total) {
+            this.total = total;
+        }
+    }
+
+    private final Cache<String, Entry> uploads;
+
+    public UploadProgressTracker(@Value("${recipeapp.images.upload-progress-ttl:10m}") Duration ttl) {
+        this.uploads = Caffeine.newBuilder()
+                .maximumSize(10_000)
+                .expireAfterAccess(ttl)
+                .build();
+    }
+
+    /**
+     * in を読みながら受信バイト数を key の進捗に記録し、maxBytes を超えたら
+     * MaxUploadSizeExceededException で読み込みを打ち切るストリームを返す。key が null なら上限の確認だけ行う。
+     */
+    public InputStream track(String key, InputStream in, long totalBytes, long maxBytes) {
+        Entry entry = new Entry(totalBytes);
+        if (key != null) {
+            uploads.put(key, entry);
+        }
+        return new FilterInputStream(in) {
+            @Override
+            public int read() throws IOException {
+                int b = super.read();
+                if (b >= 0) {
+                    advance(1);
+                }
+                return b;
+            }
+
+            @Override
+            public int read(byte[] buffer, int offset, int length) throws IOException {
+                int n = super.read(buffer, offset, length);
+                if (n > 0) {
+                    advance(n);
+                }
+                return n;
+            }
+
+            private void advance(int n) {
+                if (entry.received.addAndGet(n) > maxBytes) {
+                    throw new MaxUploadSizeExceededException(maxBytes);
+                }
+            }
+        };
+    }
+
+    public void complete(String key, String imagePath) {
+        Entry entry = key != null ? uploads.getIfPresent(key) : null;
+        if (entry != null) {
+            entry.imagePath = imagePath;
+            entry.state = State.COMPLETED;
+        }
+    }
+
+    public void fail(String key, String error) {
+        Entry entry = key != null ? uploads.getIfPresent(key) : null;
+        if (entry != null) {
+            entry.error = error;
+            entry.state = State.FAILED;
+        }
+    }
+
+    /**
+     * 進捗を返す。不明・期限切れなら null。
+     */
+    public Progress get(String key) {
+        Entry entry = uploads.getIfPresent(key);
+        if (entry == null) {
+            return null;
+        }
+        return new Progress(entry.received.get(), entry.total, entry.state, entry.imagePath, entry.error);
+    }
+}
@@ -0,0 +1,112 @@
+package com.example.recipeapp.config;
+
+import com.example.recipeapp.model.Recipe;
+import com.example.recipeapp.repository.RecipeRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// 主 DB と読み取り用 DB を別々の H2 にして、どちらから読んだかを行の有無で確かめる
+@SpringBootTest(properties = {
+		"spring.datasource.url=jdbc:h2:mem:routing-primary;MODE=MySQL;DB_CLOSE_DELAY=-1",
+		"spring.datasource.driver-class-name=org.h2.Driver",
+		"spring.datasource.username=sa",
+		"spring.datasource.password=",
+		"recipeapp.datasource.read.url=jdbc:h2:mem:routing-replica;MODE=MySQL;DB_CLOSE_DELAY=-1",
+		"recipeapp.datasource.read.username=sa",
+		"recipeapp.datasource.read.password=",
+		"recipeapp.datasource.read-your-writes-window=500ms"
+})
+class ReadWriteRoutingDataSourceTest {
+
+	private static final long REPLICA_ONLY_ID = 900_001L;
+
+	@Autowired
+	private ReadWriteRoutingDataSource dataSource;
+
+	@Autowired
+	private RecipeRepository recipeRepository;
+
+	private JdbcTemplate primary;
+	private JdbcTemplate replica;
+
+	@BeforeEach
+	void setUp() {
+		primary = new JdbcTemplate(dataSource.getPrimaryDataSource());
+		replica = new JdbcTemplate(dataSource.getReadDataSource());
+		// 読み取り用 DB は主 DB のスキーマだけを写した空の DB にする
+		replica.execute("DROP ALL OBJECTS");
+		for (String statement : primary.queryForList("SCRIPT NODATA", String.class)) {
+			if (!statement.startsWith("CREATE USER")) {
+				replica.execute(statement);
+			}
+		}
+	}
+
+	@AfterEach
+	void tearDown() {
+		SecurityContextHolder.clearContext();
+	}
+
+	@Test
+	void readOnlyQueriesGoToReplica() {
+		replica.update("INSERT INTO recipe (id, title, favorite) VALUES (?, 'replica-only', TRUE)", REPLICA_ONLY_ID);
+
+		assertThat(recipeRepository.existsById(REPLICA_ONLY_ID)).isTrue();
+		assertThat(recipeRepository.findByIdGreaterThanOrderByIdAsc(REPLICA_ONLY_ID - 1, PageRequest.of(0, 10)))
+				.extracting(Recipe::getTitle).containsExactly("replica-only");
+		assertThat(recipeRepository.findByFavoriteTrueAndIdGreaterThanOrderByIdAsc(REPLICA_ONLY_ID - 1, PageRequest.of(0, 10)))
+				.extracting(Recipe::getTitle).containsExactly("replica-only");
+		assertThat(recipeRepository.findByFavoriteTrue())
+				.extracting(Recipe::getId).contains(REPLICA_ONLY_ID);
+		assertThat(primary.queryForObject("SELECT COUNT(*) FROM recipe WHERE id = ?", Long.class, REPLICA_ONLY_ID))
+				.isZero();
+	}
+
+	@Test
+	void writesGoToPrimary() {
+		Recipe saved = recipeRepository.save(recipe("written"));
+
+		assertThat(primary.queryForObject("SELECT title FROM recipe WHERE id = ?", String.class, saved.getId()))
+				.isEqualTo("written");
+		assertThat(replica.queryForObject("SELECT COUNT(*) FROM recipe WHERE id = ?", Long.class, saved.getId()))
+				.isZero();
+	}
+
+	@Test
+	void writerReadsFromPrimaryUntilWindowExpires() throws InterruptedException {
+		authenticate("alice");
+		Recipe saved = recipeRepository.save(recipe("alice's"));
+
+		// 書き込んだ本人は主 DB から読むので自分の変更が見える
+		assertThat(recipeRepository.existsById(saved.getId())).isTrue();
+
+		// 他のユーザーは読み取り用 DB から読む
+		authenticate("bob");
+		assertThat(recipeRepository.existsById(saved.getId())).isFalse();
+
+		Thread.sleep(800);
+		authenticate("alice");
+		assertThat(recipeRepository.existsById(saved.getId())).isFalse();
+	}
+
+	private static void authenticate(String username) {
+		SecurityContextHolder.getContext().setAuthentication(UsernamePasswordAuthenticationToken.authenticated(
+				username, "password", AuthorityUtils.createAuthorityList("ROLE_USER")));
+	}
+
+	private static Recipe recipe(String title) {
+		Recipe recipe = new Recipe();
+		recipe.setTitle(title);
+		return recipe;
+	}
+}
@@ -0,0 +1,151 @@
+package com.example.recipeapp.controller;
+
+import com.example.recipeapp.service.ImageStore;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.head;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// 配信するファイルは一時ディレクトリの uploads に置く
+class ImageControllerTest {
+
+	private static final String DIGEST = "ab".repeat(32);
+	private static final String IMAGE = "/uploads/" + DIGEST + ".png";
+	private static final String BODY = "0123456789";
+
+	@TempDir
+	Path root;
+
+	private MockMvc mvc;
+
+	@BeforeEach
+	void setUp() throws IOException {
+		Path uploadDir = Files.createDirectories(root.resolve("uploads"));
+		Files.writeString(uploadDir.resolve(DIGEST + ".png"), BODY);
+		Files.writeString(uploadDir.resolve("upload_123.tmp"), BODY);
+		Files.createDirectories(uploadDir.resolve(ImageStore.DERIVATIVE_DIR));
+		Files.writeString(uploadDir.resolve(ImageStore.DERIVATIVE_DIR).resolve("tmp_123.jpg"), BODY);
+		Files.writeString(root.resolve("secret.txt"), BODY);
+
+		ImageStore imageStore = new ImageStore() {
+			@Override
+			public Path uploadDir() {
+				return uploadDir;
+			}
+		};
+		ImageController controller = new ImageController();
+		ReflectionTestUtils.setField(controller, "imageStore", imageStore);
+		mvc = MockMvcBuilders.standaloneSetup(controller).build();
+	}
+
+	@Test
+	void servesWholeFileWithDigestEtag() throws Exception {
+		mvc.perform(get(IMAGE))
+				.andExpect(status().isOk())
+				.andExpect(content().string(BODY))
+				.andExpect(content().contentType("image/png"))
+				.andExpect(header().string(HttpHeaders.ETAG, "\"" + DIGEST + "\""))
+				.andExpect(header().string(HttpHeaders.CACHE_CONTROL, "private, max-age=31536000, immutable"))
+				.andExpect(header().string(HttpHeaders.ACCEPT_RANGES, "bytes"));
+
+		mvc.perform(head(IMAGE))
+				.andExpect(status().isOk())
+				.andExpect(header().longValue(HttpHeaders.CONTENT_LENGTH, BODY.length()))
+				.andExpect(content().string(""));
+	}
+
+	@Test
+	void servesSuffixAndOpenEndedRanges() throws Exception {
+		mvc.perform(get(IMAGE).header(HttpHeaders.RANGE, "bytes=-3"))
+				.andExpect(status().isPartialContent())
+				.andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes 7-9/10"))
+				.andExpect(content().string("789"));
+
+		// 長さを超える末尾指定はファイル全体
+		mvc.perform(get(IMAGE).header(HttpHeaders.RANGE, "bytes=-20"))
+				.andExpect(status().isPartialContent())
+				.andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes 0-9/10"))
+				.andExpect(content().string(BODY));
+
+		mvc.perform(get(IMAGE).header(HttpHeaders.RANGE, "bytes=4-"))
+				.andExpect(status().isPartialContent())
+				.andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes 4-9/10"))
+				.andExpect(content().string("456789"));
+
+		mvc.perform(get(IMAGE).header(HttpHeaders.RANGE, "bytes=2-4"))
+				.andExpect(status().isPartialContent())
+				.andExpect(header().longValue(HttpHeaders.CONTENT_LENGTH, 3))
+				.andExpect(content().string("234"));
+	}
+
+	@Test
+	void rejectsUnsatisfiableRange() throws Exception {
+		mvc.perform(get(IMAGE).header(HttpHeaders.RANGE, "bytes=10-"))
+				.andExpect(status().isRequestedRangeNotSatisfiable())
+				.andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes */10"));
+
+		mvc.perform(get(IMAGE).header(HttpHeaders.RANGE, "bytes=-0"))
+				.andExpect(status().isRequestedRangeNotSatisfiable());
+	}
+
+	@Test
+	void ignoresMultipleOrMalformedRanges() throws Exception {
+		mvc.perform(get(IMAGE).header(HttpHeaders.RANGE, "bytes=0-1,4-5"))
+				.andExpect(status().isOk())
+				.andExpect(header().doesNotExist(HttpHeaders.CONTENT_RANGE))
+				.andExpect(content().string(BODY));
+
+		mvc.perform(get(IMAGE).header(HttpHeaders.RANGE, "bytes=5-2"))
+				.andExpect(status().isOk())
+				.andExpect(content().string(BODY));
+
+		// If-Range が一致しなければ全体を返す
+		mvc.perform(get(IMAGE).header(HttpHeaders.RANGE, "bytes=0-1").header(HttpHeaders.IF_RANGE, "\"other\""))
+				.andExpect(status().isOk())
+				.andExpect(content().string(BODY));
+	}
+
+	@Test
+	void answersNotModifiedForMatchingEtag() throws Exception {
+		mvc.perform(get(IMAGE).header(HttpHeaders.IF_NONE_MATCH, "W/\"" + DIGEST + "\""))
+				.andExpect(status().isNotModified())
+				.andExpect(content().string(""));
+
+		mvc.perform(get(IMAGE).header(HttpHeaders.IF_NONE_MATCH, "\"other\", \"" + DIGEST + "\""))
+				.andExpect(status().isNotModified());
+
+		mvc.perform(get(IMAGE).header(HttpHeaders.IF_NONE_MATCH, "\"other\""))
+				.andExpect(status().isOk());
+	}
+
+	@Test
+	void hidesTemporaryAndMissingFiles() throws Exception {
+		mvc.perform(get("/uploads/upload_123.tmp")).andExpect(status().isNotFound());
+		mvc.perform(get("/uploads/derivatives/tmp_123.jpg")).andExpect(status().isNotFound());
+		mvc.perform(get("/uploads/derivatives")).andExpect(status().isNotFound());
+		mvc.perform(get("/uploads/missing.png")).andExpect(status().isNotFound());
+	}
+
+	@Test
+	void rejectsPathsOutsideUploads() throws Exception {
+		// uploads の中に収まる .. は解決して配信する
+		mvc.perform(get("/uploads/derivatives/../" + DIGEST + ".png")).andExpect(status().isOk());
+
+		mvc.perform(get("/uploads/../secret.txt")).andExpect(status().isNotFound());
+		mvc.perform(get("/uploads/%2e%2e/secret.txt")).andExpect(status().isNotFound());
+		mvc.perform(get("/uploads/derivatives/..%2F..%2Fsecret.txt")).andExpect(status().isNotFound());
+	}
+}
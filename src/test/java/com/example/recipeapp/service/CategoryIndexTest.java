@@ -0,0 +1,94 @@
+package com.example.recipeapp.service;
+
+import com.example.recipeapp.service.CategoryIndex.CategoryPage;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static com.example.recipeapp.service.TestRecipes.recipe;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CategoryIndexTest {
+
+	private CategoryIndex index;
+
+	@BeforeEach
+	void setUp() {
+		index = new CategoryIndex();
+		index.put(recipe(1L, "肉じゃが", null, "和食", "時短"));
+		index.put(recipe(2L, "親子丼", null, "和食"));
+		index.put(recipe(3L, "カレー", null, "洋食", "時短"));
+		index.put(recipe(5L, "ナポリタン", null, "洋食", "麺類", "時短"));
+		index.put(recipe(8L, "冷奴", null));
+	}
+
+	@Test
+	void matchesAllOrAnyCategory() {
+		assertThat(index.page(List.of("和食", "時短"), true, -1, 10))
+				.isEqualTo(new CategoryPage(List.of(1L), false, 1));
+		assertThat(index.page(List.of("和食", "麺類"), false, -1, 10))
+				.isEqualTo(new CategoryPage(List.of(1L, 2L, 5L), false, 3));
+		assertThat(index.page(List.of("時短"), true, -1, 10))
+				.isEqualTo(new CategoryPage(List.of(1L, 3L, 5L), false, 3));
+	}
+
+	@Test
+	void unknownCategoryEmptiesAndButIsIgnoredByOr() {
+		assertThat(index.page(List.of("和食", "未登録"), true, -1, 10).ids()).isEmpty();
+		assertThat(index.page(List.of("未登録", "洋食"), false, -1, 10).ids()).containsExactly(3L, 5L);
+		assertThat(index.page(List.of("未登録"), false, -1, 10).total()).isZero();
+		assertThat(index.page(List.of(), true, -1, 10).ids()).isEmpty();
+	}
+
+	@Test
+	void pagesAfterCursorWithTotalOfAllMatches() {
+		CategoryPage first = index.page(List.of("時短"), false, -1, 2);
+		assertThat(first).isEqualTo(new CategoryPage(List.of(1L, 3L), true, 3));
+
+		CategoryPage second = index.page(List.of("時短"), false, first.ids().get(1), 2);
+		assertThat(second).isEqualTo(new CategoryPage(List.of(5L), false, 3));
+
+		// 途中の ID が消えていても次の ID から続く
+		assertThat(index.page(List.of("時短"), false, 4, 2).ids()).containsExactly(5L);
+		assertThat(index.page(List.of("時短"), false, 5, 2)).isEqualTo(new CategoryPage(List.of(), false, 3));
+	}
+
+	@Test
+	void andDoesNotModifySingleCategoryBitSet() {
+		index.page(List.of("時短", "洋食"), true, -1, 10);
+		index.page(List.of("時短", "和食"), false, -1, 10);
+		assertThat(index.page(List.of("時短"), true, -1, 10).ids()).containsExactly(1L, 3L, 5L);
+	}
+
+	@Test
+	void reindexingMovesRecipeAndRegistersNewNames() {
+		index.put(recipe(1L, "肉じゃが", null, "作り置き", "おふくろの味"));
+		assertThat(index.categoriesOf(1L)).containsExactlyInAnyOrder("作り置き", "おふくろの味");
+		assertThat(index.page(List.of("和食"), true, -1, 10).ids()).containsExactly(2L);
+		assertThat(index.canonicalName(" おふくろの味 ")).isEqualTo("おふくろの味");
+		assertThat(index.idOf("おふくろの味")).isGreaterThanOrEqualTo(CategoryIndex.STANDARD_CATEGORIES.size());
+
+		index.remove(1L);
+		assertThat(index.categoriesOf(1L)).isEmpty();
+
+		// 全件削除しても辞書は残る
+		index.clear();
+		assertThat(index.page(List.of("洋食"), true, -1, 10).total()).isZero();
+		assertThat(index.canonicalName("おふくろの味")).isEqualTo("おふくろの味");
+		assertThat(index.canonicalName("未登録")).isNull();
+	}
+
+	@Test
+	void idsBeyondIntRangeAreRejectedAndCursorPastThemIsEmpty() {
+		assertThatThrownBy(() -> index.put(recipe((long) Integer.MAX_VALUE + 1, "範囲外", null, "和食")))
+				.isInstanceOf(ArithmeticException.class);
+
+		index.put(recipe((long) Integer.MAX_VALUE, "最大", null, "和食"));
+		assertThat(index.page(List.of("和食"), true, Integer.MAX_VALUE - 1L, 10).ids()).containsExactly((long) Integer.MAX_VALUE);
+		assertThat(index.page(List.of("和食"), true, Integer.MAX_VALUE, 10))
+				.isEqualTo(new CategoryPage(List.of(), false, 3));
+		assertThat(index.page(List.of("和食"), true, Long.MAX_VALUE, 10).ids()).isEmpty();
+	}
+}
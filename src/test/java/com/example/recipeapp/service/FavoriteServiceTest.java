@@ -0,0 +1,150 @@
+package com.example.recipeapp.service;
+
+import com.example.recipeapp.repository.RecipeRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static com.example.recipeapp.service.TestRecipes.favorite;
+import static com.example.recipeapp.service.TestRecipes.recipe;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.reset;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.when;
+
+// coalesce-interval を設定したときの切り替えのまとめ方（flush は定期実行を待たずに直接呼ぶ）
+class FavoriteServiceTest {
+
+	private final PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+	private final RecipeRepository recipeRepository = mock(RecipeRepository.class);
+	private final RecipeDataVersion recipeDataVersion = mock(RecipeDataVersion.class);
+	private final RecipeSearchIndex recipeSearchIndex = new RecipeSearchIndex();
+
+	private FavoriteService service;
+
+	@BeforeEach
+	void setUp() {
+		service = new FavoriteService(transactionManager, Duration.ofHours(1));
+		ReflectionTestUtils.setField(service, "recipeRepository", recipeRepository);
+		ReflectionTestUtils.setField(service, "recipeSearchIndex", recipeSearchIndex);
+		ReflectionTestUtils.setField(service, "recipeDataVersion", recipeDataVersion);
+		// 通知は索引にだけ届ける
+		ReflectionTestUtils.setField(service, "eventPublisher",
+				(ApplicationEventPublisher) event -> recipeSearchIndex.onRecipeChanged((RecipeChangedEvent) event));
+
+		recipeSearchIndex.index(recipe(1L, "肉じゃが", null));
+		recipeSearchIndex.index(recipe(2L, "親子丼", null));
+		recipeSearchIndex.index(favorite(recipe(3L, "カレー", null)));
+	}
+
+	@Test
+	void togglesInIndexWithoutWritingImmediately() {
+		assertThat(service.toggle(1L)).contains(true);
+		assertThat(service.toggle(1L)).contains(false);
+		assertThat(service.toggle(3L)).contains(false);
+		assertThat(recipeSearchIndex.isFavorite(3L)).isFalse();
+
+		verifyNoInteractions(recipeRepository);
+	}
+
+	@Test
+	void flushWritesOneUpdatePerValue() {
+		service.toggle(1L);
+		service.toggle(2L);
+		service.toggle(2L);
+		service.toggle(3L);
+
+		service.flush();
+
+		verify(recipeRepository).updateFavorite(argThat(ids -> List.copyOf(ids).equals(List.of(1L))), eq(true));
+		verify(recipeRepository).updateFavorite(argThat(ids -> ids.size() == 2 && ids.containsAll(List.of(2L, 3L))), eq(false));
+		verify(recipeDataVersion).touch(argThat(ids -> ids.size() == 3 && ids.containsAll(List.of(1L, 2L, 3L))));
+
+		// 反映済みのものは次回は書かない
+		service.flush();
+		verifyNoMoreInteractions(recipeRepository, recipeDataVersion);
+	}
+
+	@Test
+	void keepsPendingTogglesWhenFlushFails() {
+		doThrow(new IllegalStateException("DB down")).when(recipeRepository).updateFavorite(anyCollection(), anyBoolean());
+		service.toggle(1L);
+
+		service.flush();
+		verify(recipeDataVersion, never()).touch(anyCollection());
+
+		reset(recipeRepository);
+		service.flush();
+		verify(recipeRepository).updateFavorite(argThat(ids -> List.copyOf(ids).equals(List.of(1L))), eq(true));
+		verify(recipeDataVersion).touch(argThat(ids -> List.copyOf(ids).equals(List.of(1L))));
+	}
+
+	@Test
+	void savedRecipeDropsPendingToggle() {
+		service.toggle(1L);
+		service.onRecipeChanged(RecipeChangedEvent.saved(recipe(1L, "肉じゃが", null)));
+
+		service.flush();
+		verifyNoInteractions(recipeRepository, recipeDataVersion);
+	}
+
+	@Test
+	void fallsBackToDatabaseForUnindexedRecipe() {
+		when(recipeRepository.toggleFavorite(9L)).thenReturn(1);
+		when(recipeRepository.findFavoriteById(9L)).thenReturn(Optional.of(true));
+
+		assertThat(service.toggle(9L)).contains(true);
+		verify(recipeRepository).toggleFavorite(9L);
+	}
+
+	@Test
+	void publishesDatabaseValueOnlyAfterCommit() {
+		List<Object> events = new ArrayList<>();
+		ReflectionTestUtils.setField(service, "eventPublisher", (ApplicationEventPublisher) event -> {
+			// 通知の時点でコミットが済んでいる
+			verify(transactionManager).commit(any());
+			events.add(event);
+		});
+		when(recipeRepository.toggleFavorite(9L)).thenReturn(1);
+		when(recipeRepository.findFavoriteById(9L)).thenReturn(Optional.of(false));
+
+		assertThat(service.toggle(9L)).contains(false);
+		assertThat(events).containsExactly(RecipeChangedEvent.favoriteChanged(9L, false));
+	}
+
+	@Test
+	void rolledBackToggleIsNotPublished() {
+		List<Object> events = new ArrayList<>();
+		ReflectionTestUtils.setField(service, "eventPublisher", (ApplicationEventPublisher) events::add);
+		when(recipeRepository.toggleFavorite(9L)).thenReturn(1);
+		when(recipeRepository.findFavoriteById(9L)).thenThrow(new IllegalStateException("DB down"));
+
+		assertThatThrownBy(() -> service.toggle(9L)).isInstanceOf(IllegalStateException.class);
+		verify(transactionManager).rollback(any());
+		verify(transactionManager, never()).commit(any());
+		assertThat(events).isEmpty();
+
+		// 見つからないレシピも通知しない
+		when(recipeRepository.toggleFavorite(10L)).thenReturn(0);
+		assertThat(service.toggle(10L)).isEmpty();
+		assertThat(events).isEmpty();
+	}
+}
@@ -0,0 +1,180 @@
+package com.example.recipeapp.service;
+
+import com.example.recipeapp.model.Recipe;
+import com.example.recipeapp.repository.RecipeRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static com.example.recipeapp.service.TestRecipes.recipe;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+// uploads の代わりに一時ディレクトリを使い、DB の参照確認はモックで返す
+class ImageStoreTest {
+
+	@TempDir
+	Path uploadDir;
+
+	private final RecipeRepository recipeRepository = mock(RecipeRepository.class);
+
+	private ImageStore store;
+
+	@BeforeEach
+	void setUp() {
+		store = new ImageStore() {
+			@Override
+			public Path uploadDir() {
+				return uploadDir;
+			}
+		};
+		ReflectionTestUtils.setField(store, "recipeRepository", recipeRepository);
+		ReflectionTestUtils.setField(store, "meterRegistry", new SimpleMeterRegistry());
+		store.registerMeters();
+	}
+
+	@Test
+	void sharedImageIsKeptUntilLastRecipeIsDeleted() throws IOException {
+		String first = store("同じ画像", null);
+		String second = store("同じ画像", null);
+		assertThat(second).isEqualTo(first);
+
+		store.onRecipeChanged(RecipeChangedEvent.saved(withImage(1L, first)));
+		store.onRecipeChanged(RecipeChangedEvent.saved(withImage(2L, second)));
+
+		store.onRecipeChanged(RecipeChangedEvent.deleted(1L));
+		assertThat(store.resolve(first)).exists();
+
+		store.onRecipeChanged(RecipeChangedEvent.deleted(2L));
+		assertThat(store.resolve(first)).doesNotExist();
+	}
+
+	@Test
+	void replacedImageIsDeletedWithDerivatives() throws IOException {
+		String before = store("差し替え前", null);
+		Path card = store.resolve(store.derivativePath(before, ImageDerivativeService.CARD_VARIANT));
+		Files.createDirectories(card.getParent());
+		Files.writeString(card, "card");
+		store.onRecipeChanged(RecipeChangedEvent.saved(withImage(1L, before)));
+
+		String after = store("差し替え後", null);
+		store.onRecipeChanged(RecipeChangedEvent.saved(withImage(1L, after)));
+
+		assertThat(store.resolve(before)).doesNotExist();
+		assertThat(card).doesNotExist();
+		assertThat(store.resolve(after)).exists();
+	}
+
+	@Test
+	void imageStillInDatabaseIsNotDeleted() throws IOException {
+		String imagePath = store("DB にある画像", null);
+		when(recipeRepository.existsByImagePath(imagePath)).thenReturn(true);
+
+		store.discard(imagePath);
+		assertThat(store.resolve(imagePath)).exists();
+	}
+
+	@Test
+	void discardByAnotherUserIsRefused() throws IOException {
+		String imagePath = store("アップロード", "alice");
+
+		assertThat(store.discard(imagePath, "bob")).isFalse();
+		assertThat(store.claim(imagePath, "bob")).isFalse();
+		assertThat(store.isPending(imagePath, "alice")).isTrue();
+		assertThat(store.resolve(imagePath)).exists();
+
+		assertThat(store.discard(imagePath, "alice")).isTrue();
+		assertThat(store.isPending(imagePath, "alice")).isFalse();
+		assertThat(store.resolve(imagePath)).doesNotExist();
+	}
+
+	@Test
+	void expiredPendingImageBecomesOrphan() throws Exception {
+		String imagePath = store("フォームを閉じた", "alice");
+
+		assertThat(store.expirePending(Duration.ofHours(1))).isZero();
+		assertThat(store.deleteIfOrphan(imagePath, Set.of())).isEqualTo(-1);
+
+		Thread.sleep(5);
+		assertThat(store.expirePending(Duration.ZERO)).isEqualTo(1);
+		assertThat(store.isPending(imagePath, "alice")).isFalse();
+		assertThat(store.deleteIfOrphan(imagePath, Set.of(imagePath))).isEqualTo(-1);
+		assertThat(store.deleteIfOrphan(imagePath, Set.of())).isPositive();
+		assertThat(store.resolve(imagePath)).doesNotExist();
+	}
+
+	@Test
+	void storedImageSurvivesConcurrentOrphanCollection() throws Exception {
+		for (int i = 0; i < 50; i++) {
+			String content = "競合" + i;
+			// 先に一度保存して手放し、パスだけを得る
+			String imagePath = store(content, null);
+			store.discard(imagePath);
+
+			AtomicBoolean storing = new AtomicBoolean(true);
+			CompletableFuture<Void> collector = CompletableFuture.runAsync(() -> {
+				while (storing.get()) {
+					store.deleteIfOrphan(imagePath, Set.of());
+				}
+			});
+			try {
+				assertThat(store(content, null)).isEqualTo(imagePath);
+				// 保留中の画像は GC に消されない
+				assertThat(store.resolve(imagePath)).exists();
+			} finally {
+				storing.set(false);
+				collector.get(5, TimeUnit.SECONDS);
+			}
+			assertThat(store.resolve(imagePath)).exists();
+			store.discard(imagePath);
+		}
+	}
+
+	@Test
+	void databaseCheckRunsOutsideLockAndRechecksBeforeDeleting() throws Exception {
+		String imagePath = store("確認中に再アップロード", null);
+		ReentrantLock lock = (ReentrantLock) ReflectionTestUtils.getField(store, "lock");
+		when(recipeRepository.existsByImagePath(anyString())).thenAnswer(invocation -> {
+			assertThat(lock.isHeldByCurrentThread()).isFalse();
+			// DB を確認している間に同じ画像が別のリクエストで保存される
+			CompletableFuture.runAsync(() -> {
+				try {
+					store("確認中に再アップロード", null);
+				} catch (IOException e) {
+					throw new IllegalStateException(e);
+				}
+			}).get(5, TimeUnit.SECONDS);
+			return false;
+		});
+
+		store.discard(imagePath);
+		assertThat(store.resolve(imagePath)).exists();
+		assertThat(store.isReferenced(imagePath)).isTrue();
+	}
+
+	private String store(String content, String owner) throws IOException {
+		return store.store(new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8)), "photo.jpg", owner);
+	}
+
+	private static Recipe withImage(Long id, String imagePath) {
+		Recipe recipe = recipe(id, "レシピ" + id, null);
+		recipe.setImagePath(imagePath);
+		return recipe;
+	}
+}
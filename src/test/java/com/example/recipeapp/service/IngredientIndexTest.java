@@ -0,0 +1,78 @@
+package com.example.recipeapp.service;
+
+import com.example.recipeapp.service.IngredientIndex.PantryMatch;
+import com.example.recipeapp.service.IngredientIndex.PantryResult;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static com.example.recipeapp.service.TestRecipes.recipe;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class IngredientIndexTest {
+
+	private IngredientIndex index;
+
+	@BeforeEach
+	void setUp() {
+		index = new IngredientIndex();
+		index.put(recipe(1L, "麻婆豆腐", "・豆腐 1丁\n・ひき肉 100g\n・長ねぎ 1本"));
+		index.put(recipe(2L, "豆腐サラダ", "・豆腐 1/2丁\n・玉ねぎ 1個"));
+		index.put(recipe(3L, "肉じゃが", "・玉ねぎ 2個\n・にんじん 1本\n・じゃがいも 2個"));
+	}
+
+	@Test
+	void ranksByMissingCountThenCoverageThenId() {
+		PantryResult result = index.match(List.of("豆腐 1丁", "玉ねぎ", "にんじん"), 2, 0, 10);
+		assertThat(result.total()).isEqualTo(3);
+		assertThat(result.matches()).containsExactly(
+				new PantryMatch(2L, 2, 2, List.of()),
+				new PantryMatch(3L, 2, 3, List.of("じゃがいも")),
+				new PantryMatch(1L, 1, 3, List.of("ひき肉", "長ねぎ")));
+	}
+
+	@Test
+	void countsAllMatchesButBuildsOnlyRequestedPage() {
+		List<String> pantry = List.of("豆腐", "玉ねぎ", "にんじん");
+		assertThat(index.match(pantry, 2, 1, 1)).isEqualTo(
+				new PantryResult(List.of(new PantryMatch(3L, 2, 3, List.of("じゃがいも"))), 3));
+		assertThat(index.match(pantry, 2, 5, 10)).isEqualTo(new PantryResult(List.of(), 3));
+		assertThat(index.match(pantry, 2, 0, 0)).isEqualTo(new PantryResult(List.of(), 3));
+	}
+
+	@Test
+	void maxMissingFiltersAndUnusedPantryIsIgnored() {
+		assertThat(index.match(List.of("豆腐", "玉ねぎ"), 0, 0, 10).matches())
+				.extracting(PantryMatch::recipeId).containsExactly(2L);
+		// 手持ちの材料を1つも使わないレシピは足りない数が少なくても含めない
+		assertThat(index.match(List.of("にんじん", "えび"), 10, 0, 10).matches())
+				.extracting(PantryMatch::recipeId).containsExactly(3L);
+		assertThat(index.match(List.of("えび"), 10, 0, 10)).isEqualTo(new PantryResult(List.of(), 0));
+	}
+
+	@Test
+	void dictionaryUsesNormalizedKeyAndFirstSpelling() {
+		index.put(recipe(4L, "ベーコンエッグ", "・ﾍﾞｰｺﾝ 2枚\n・卵3個"));
+		index.put(recipe(5L, "ベーコン炒め", "・ベーコン 4枚\n・キャベツ 1/4個"));
+		assertThat(index.match(List.of("卵、塩"), 1, 0, 10).matches())
+				.containsExactly(new PantryMatch(4L, 1, 2, List.of("ﾍﾞｰｺﾝ")));
+		assertThat(index.match(List.of("ﾍﾞｰｺﾝ"), 1, 0, 10).matches())
+				.extracting(PantryMatch::recipeId).containsExactly(4L, 5L);
+	}
+
+	@Test
+	void reindexingClearsOldBitsAndSparseIdsWork() {
+		index.put(recipe(2L, "えびチリ", "・えび 200g"));
+		assertThat(index.match(List.of("豆腐"), 10, 0, 10).matches())
+				.extracting(PantryMatch::recipeId).containsExactly(1L);
+
+		index.put(recipe(100_000L, "湯豆腐", "・豆腐 1丁"));
+		assertThat(index.match(List.of("豆腐"), 0, 0, 10).matches())
+				.extracting(PantryMatch::recipeId).containsExactly(100_000L);
+
+		index.remove(100_000L);
+		index.clear();
+		assertThat(index.match(List.of("豆腐"), 10, 0, 10).total()).isZero();
+	}
+}
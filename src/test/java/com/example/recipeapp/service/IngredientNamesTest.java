@@ -0,0 +1,40 @@
+package com.example.recipeapp.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class IngredientNamesTest {
+
+	@Test
+	void stripsBulletsAndQuantities() {
+		assertThat(IngredientNames.parse("・玉ねぎ 1個\n・にんじん　1本\r\n- ひき肉 100g"))
+				.containsExactly("玉ねぎ", "にんじん", "ひき肉");
+	}
+
+	@Test
+	void stripsQuantitiesWrittenWithoutSpace() {
+		assertThat(IngredientNames.parse("卵3個")).containsExactly("卵");
+		assertThat(IngredientNames.parse("砂糖大さじ1")).containsExactly("砂糖");
+		assertThat(IngredientNames.parse("鶏もも肉(300g)")).containsExactly("鶏もも肉");
+		assertThat(IngredientNames.parse("牛乳２００ml")).containsExactly("牛乳");
+	}
+
+	@Test
+	void splitsOnCommasAndReadingMarks() {
+		assertThat(IngredientNames.parse("塩、こしょう 少々")).containsExactly("塩", "こしょう");
+		assertThat(IngredientNames.parse("醤油 大さじ2, みりん 大さじ1")).containsExactly("醤油", "みりん");
+	}
+
+	@Test
+	void skipsQuantityOnlyAndBlankParts() {
+		assertThat(IngredientNames.parse("200g\n\n・\n少々")).isEmpty();
+		assertThat(IngredientNames.parse("  ")).isEmpty();
+		assertThat(IngredientNames.parse(null)).isEmpty();
+	}
+
+	@Test
+	void keepsDuplicatesInOrder() {
+		assertThat(IngredientNames.parse("塩 少々\n砂糖 小さじ1\n塩 ひとつまみ")).containsExactly("塩", "砂糖", "塩");
+	}
+}
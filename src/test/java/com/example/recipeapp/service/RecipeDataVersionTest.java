@@ -0,0 +1,141 @@
+package com.example.recipeapp.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+
+import static com.example.recipeapp.service.TestRecipes.recipe;
+import static org.assertj.core.api.Assertions.assertThat;
+
+// イベントは Spring と同じ順（版数の前処理 → 索引 → 版数の後処理）で直接渡す
+class RecipeDataVersionTest {
+
+	private final CategoryIndex categoryIndex = new CategoryIndex();
+
+	private RecipeDataVersion version;
+
+	@BeforeEach
+	void setUp() {
+		version = new RecipeDataVersion();
+		ReflectionTestUtils.setField(version, "categoryIndex", categoryIndex);
+		publish(RecipeChangedEvent.loaded(recipe(1L, "肉じゃが", null, "和食")));
+		publish(RecipeChangedEvent.loaded(recipe(2L, "カレー", null, "洋食")));
+	}
+
+	@AfterEach
+	void tearDown() {
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.clearSynchronization();
+		}
+	}
+
+	@Test
+	void changeOutsideTransactionBumpsImmediately() {
+		String etag = version.etag();
+		publish(RecipeChangedEvent.saved(recipe(3L, "親子丼", null, "和食")));
+
+		assertThat(version.etag()).isNotEqualTo(etag).startsWith("W/\"");
+	}
+
+	@Test
+	void changeInsideTransactionBumpsOnlyAfterCommit() {
+		String etag = version.etag();
+		String washoku = version.categoryEtag("和食");
+
+		TransactionSynchronizationManager.initSynchronization();
+		publish(RecipeChangedEvent.saved(recipe(3L, "親子丼", null, "和食")));
+		version.touch(List.of(2L));
+		// コミット前は変わらない
+		assertThat(version.etag()).isEqualTo(etag);
+		assertThat(version.categoryEtag("和食")).isEqualTo(washoku);
+
+		List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+		TransactionSynchronizationManager.clearSynchronization();
+		synchronizations.forEach(TransactionSynchronization::afterCommit);
+
+		assertThat(version.etag()).isNotEqualTo(etag);
+		assertThat(version.categoryEtag("和食")).isNotEqualTo(washoku);
+	}
+
+	@Test
+	void rolledBackChangeDoesNotBump() {
+		String etag = version.etag();
+
+		TransactionSynchronizationManager.initSynchronization();
+		publish(RecipeChangedEvent.saved(recipe(3L, "親子丼", null, "和食")));
+		List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+		TransactionSynchronizationManager.clearSynchronization();
+		synchronizations.forEach(sync -> sync.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+
+		assertThat(version.etag()).isEqualTo(etag);
+	}
+
+	@Test
+	void categoryEtagChangesOnlyForAffectedCategories() {
+		String washoku = version.categoryEtag("和食");
+		String yoshoku = version.categoryEtag("洋食");
+
+		publish(RecipeChangedEvent.saved(recipe(3L, "親子丼", null, "和食")));
+		assertThat(version.categoryEtag("和食")).isNotEqualTo(washoku);
+		assertThat(version.categoryEtag("洋食")).isEqualTo(yoshoku);
+
+		// 部分一致するカテゴリの版数も含む（検索のカテゴリ条件と同じ判定）
+		assertThat(version.categoryEtag("和")).isEqualTo(version.categoryEtag("和食"));
+		// 空の条件は全体の ETag
+		assertThat(version.categoryEtag(" ")).isEqualTo(version.etag());
+	}
+
+	@Test
+	void movingRecipeBumpsPreviousAndNewCategories() {
+		String washoku = version.categoryEtag("和食");
+		String yoshoku = version.categoryEtag("洋食");
+		String chuka = version.categoryEtag("中華");
+
+		publish(RecipeChangedEvent.saved(recipe(1L, "肉じゃが", null, "中華")));
+		assertThat(version.categoryEtag("和食")).isNotEqualTo(washoku);
+		assertThat(version.categoryEtag("中華")).isNotEqualTo(chuka);
+		assertThat(version.categoryEtag("洋食")).isEqualTo(yoshoku);
+
+		// 削除とお気に入りはイベントにカテゴリが無いので、索引にあった所属から求める
+		yoshoku = version.categoryEtag("洋食");
+		chuka = version.categoryEtag("中華");
+		publish(RecipeChangedEvent.favoriteChanged(2L, true));
+		assertThat(version.categoryEtag("洋食")).isNotEqualTo(yoshoku);
+		publish(RecipeChangedEvent.deleted(1L));
+		assertThat(version.categoryEtag("中華")).isNotEqualTo(chuka);
+	}
+
+	@Test
+	void touchAndClearBumpCategories() {
+		String yoshoku = version.categoryEtag("洋食");
+		String washoku = version.categoryEtag("和食");
+
+		version.touch(List.of(2L));
+		assertThat(version.categoryEtag("洋食")).isNotEqualTo(yoshoku);
+		assertThat(version.categoryEtag("和食")).isEqualTo(washoku);
+
+		yoshoku = version.categoryEtag("洋食");
+		publish(RecipeChangedEvent.cleared());
+		assertThat(version.categoryEtag("和食")).isNotEqualTo(washoku);
+		assertThat(version.categoryEtag("洋食")).isNotEqualTo(yoshoku);
+	}
+
+	@Test
+	void restartDoesNotReuseEtags() throws InterruptedException {
+		RecipeDataVersion before = new RecipeDataVersion();
+		Thread.sleep(2);
+		// 再起動で版数が 0 に戻っても以前の ETag とは一致しない
+		assertThat(new RecipeDataVersion().etag()).isNotEqualTo(before.etag());
+	}
+
+	private void publish(RecipeChangedEvent event) {
+		version.beforeRecipeChanged(event);
+		categoryIndex.onRecipeChanged(event);
+		version.afterRecipeChanged(event);
+	}
+}
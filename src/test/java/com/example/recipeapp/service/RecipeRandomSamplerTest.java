@@ -0,0 +1,87 @@
+package com.example.recipeapp.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.LongStream;
+
+import static com.example.recipeapp.service.TestRecipes.recipe;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class RecipeRandomSamplerTest {
+
+	private RecipeRandomSampler sampler;
+
+	@BeforeEach
+	void setUp() {
+		sampler = new RecipeRandomSampler();
+		sampler.put(recipe(1L, "肉じゃが", null, "和食"));
+		sampler.put(recipe(2L, "親子丼", null, "和食"));
+		sampler.put(recipe(3L, "カレー", null, "洋食"));
+		sampler.put(recipe(4L, "ナポリタン", null, "洋食", "麺類"));
+		sampler.put(recipe(5L, "冷奴", null));
+	}
+
+	@Test
+	void samplesDistinctIdsUpToPoolSize() {
+		assertThat(sampler.sample(3, null)).hasSize(3).doesNotHaveDuplicates()
+				.isSubsetOf(1L, 2L, 3L, 4L, 5L);
+		assertThat(sampler.sample(10, null)).containsExactlyInAnyOrder(1L, 2L, 3L, 4L, 5L);
+		assertThat(sampler.sample(0, null)).isEmpty();
+	}
+
+	@Test
+	void restrictsToTrimmedCategory() {
+		assertThat(sampler.sample(10, " 洋食 ")).containsExactlyInAnyOrder(3L, 4L);
+		assertThat(sampler.sample(10, "麺類")).containsExactly(4L);
+		assertThat(sampler.sample(10, "中華")).isEmpty();
+		assertThat(sampler.sample(10, " ")).hasSize(5);
+	}
+
+	@Test
+	void movesRecipeBetweenCategoryPools() {
+		sampler.put(recipe(4L, "ナポリタン", null, "和食"));
+		assertThat(sampler.sample(10, "洋食")).containsExactly(3L);
+		assertThat(sampler.sample(10, "麺類")).isEmpty();
+		assertThat(sampler.sample(10, "和食")).containsExactlyInAnyOrder(1L, 2L, 4L);
+		assertThat(sampler.sample(10, null)).hasSize(5);
+	}
+
+	@Test
+	void removalKeepsRemainingIdsReachable() {
+		// 途中の ID を消すと末尾の ID がその位置に移る
+		sampler.remove(2L);
+		sampler.remove(99L);
+		assertThat(sampler.sample(10, null)).containsExactlyInAnyOrder(1L, 3L, 4L, 5L);
+		assertThat(sampler.sample(10, "和食")).containsExactly(1L);
+
+		sampler.clear();
+		assertThat(sampler.sample(10, null)).isEmpty();
+	}
+
+	@Test
+	void growsBeyondInitialCapacity() {
+		LongStream.rangeClosed(6, 100).forEach(id -> sampler.put(recipe(id, "レシピ" + id, null)));
+		assertThat(sampler.sample(1000, null)).hasSize(100).doesNotHaveDuplicates();
+	}
+
+	@Test
+	void everyIdIsEquallyLikelyInEveryPosition() {
+		int trials = 20_000;
+		Map<Long, Integer> picked = new HashMap<>();
+		Map<Long, Integer> first = new HashMap<>();
+		for (int i = 0; i < trials; i++) {
+			List<Long> ids = sampler.sample(2, null);
+			ids.forEach(id -> picked.merge(id, 1, Integer::sum));
+			first.merge(ids.get(0), 1, Integer::sum);
+		}
+		// 5件から2件なので各 ID は 2/5 の確率で選ばれ、先頭に来る確率は 1/5
+		assertThat(picked).hasSize(5);
+		picked.values().forEach(count -> assertThat((double) count / trials).isCloseTo(0.4, within(0.02)));
+		first.values().forEach(count -> assertThat((double) count / trials).isCloseTo(0.2, within(0.02)));
+	}
+}
@@ -0,0 +1,83 @@
+package com.example.recipeapp.service;
+
+import com.example.recipeapp.model.Recipe;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RecipeSearchIndexTest {
+
+	private RecipeSearchIndex index;
+
+	@BeforeEach
+	void setUp() {
+		index = new RecipeSearchIndex();
+		index.index(recipe(1L, "麻婆豆腐", "・豆腐 1丁\n・ひき肉 100g", Set.of("中華"), false));
+		index.index(recipe(2L, "豆腐ハンバーグ", "・豆腐 1/2丁\n・玉ねぎ 1個", Set.of("洋食", "ヘルシー"), true));
+		index.index(recipe(3L, "カレーライス", "・玉ねぎ 2個\n・ﾆﾝｼﾞﾝ 1本", Set.of("洋食"), true));
+	}
+
+	@Test
+	void matchesKanjiSubstringsInTitle() {
+		assertThat(search(new RecipeSearchIndex.SearchQuery(null, "麻婆", null, null, null)).ids())
+				.containsExactly(1L);
+		// 前方一致の「豆腐ハンバーグ」が上位
+		assertThat(search(new RecipeSearchIndex.SearchQuery(null, "豆", null, null, null)).ids())
+				.containsExactly(2L, 1L);
+	}
+
+	@Test
+	void verifiesBigramCandidatesAgainstSubstring() {
+		// 「豆腐」「腐ハ」はどちらも含むが「豆腐ハ」は 2 のみ
+		assertThat(search(new RecipeSearchIndex.SearchQuery(null, "豆腐ハ", null, null, null)).ids())
+				.containsExactly(2L);
+		assertThat(search(new RecipeSearchIndex.SearchQuery(null, "腐麻", null, null, null)).total())
+				.isZero();
+	}
+
+	@Test
+	void normalizesHalfWidthKanaAndCombinesFilters() {
+		assertThat(search(new RecipeSearchIndex.SearchQuery(null, null, null, "ニンジン", null)).ids())
+				.containsExactly(3L);
+		assertThat(search(new RecipeSearchIndex.SearchQuery(null, null, "洋食", "玉ねぎ", true)).ids())
+				.containsExactly(2L, 3L);
+	}
+
+	@Test
+	void ranksTitleMatchesAboveIngredientMatchesAndPages() {
+		RecipeSearchIndex.SearchResult result = search(new RecipeSearchIndex.SearchQuery("豆腐", null, null, null, null));
+		assertThat(result.total()).isEqualTo(2);
+		assertThat(result.ids()).containsExactly(2L, 1L);
+
+		assertThat(index.search(new RecipeSearchIndex.SearchQuery("豆腐", null, null, null, null), 1, 1).ids())
+				.containsExactly(1L);
+	}
+
+	@Test
+	void reflectsUpdatesAndDeletes() {
+		index.index(recipe(1L, "エビチリ", "・えび 200g", Set.of("中華"), false));
+		assertThat(search(new RecipeSearchIndex.SearchQuery(null, "麻婆", null, null, null)).total()).isZero();
+		assertThat(search(new RecipeSearchIndex.SearchQuery(null, "エビ", null, null, null)).ids()).containsExactly(1L);
+
+		index.remove(1L);
+		assertThat(search(new RecipeSearchIndex.SearchQuery(null, null, "中華", null, null)).total()).isZero();
+		assertThat(index.size()).isEqualTo(2);
+	}
+
+	private RecipeSearchIndex.SearchResult search(RecipeSearchIndex.SearchQuery query) {
+		return index.search(query, 0, 50);
+	}
+
+	private static Recipe recipe(Long id, String title, String ingredients, Set<String> categories, boolean favorite) {
+		Recipe recipe = new Recipe();
+		recipe.setId(id);
+		recipe.setTitle(title);
+		recipe.setIngredients(ingredients);
+		recipe.setCategories(categories);
+		recipe.setFavorite(favorite);
+		return recipe;
+	}
+}
@@ -0,0 +1,85 @@
+package com.example.recipeapp.service;
+
+import com.example.recipeapp.service.RecipeSuggestIndex.Kind;
+import com.example.recipeapp.service.RecipeSuggestIndex.Suggestion;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static com.example.recipeapp.service.TestRecipes.recipe;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RecipeSuggestIndexTest {
+
+	private RecipeSuggestIndex index;
+
+	@BeforeEach
+	void setUp() {
+		index = new RecipeSuggestIndex();
+		index.index(recipe(1L, "豆腐ハンバーグ", "・豆腐 1/2丁\n・玉ねぎ 1個", "洋食"));
+		index.index(recipe(2L, "麻婆豆腐", "・豆腐 1丁\n・ひき肉 100g", "中華"));
+		index.index(recipe(3L, "玉子焼き", "・卵 3個", "和食"));
+	}
+
+	@Test
+	void ranksByRecipeCountThenLength() {
+		assertThat(index.suggest("豆", 10)).containsExactly(
+				new Suggestion("豆腐", Kind.INGREDIENT, 2),
+				new Suggestion("豆腐ハンバーグ", Kind.TITLE, 1));
+		// 件数が同じなら短い語が先
+		assertThat(index.suggest("玉", 10)).extracting(Suggestion::text).containsExactly("玉ねぎ", "玉子焼き");
+	}
+
+	@Test
+	void keepsSameWordOfDifferentKindsApart() {
+		index.index(recipe(4L, "中華", "・中華麺 1玉", "麺"));
+		assertThat(index.suggest("中華", 10)).containsExactlyInAnyOrder(
+				new Suggestion("中華", Kind.TITLE, 1),
+				new Suggestion("中華", Kind.CATEGORY, 1),
+				new Suggestion("中華麺", Kind.INGREDIENT, 1));
+	}
+
+	@Test
+	void memoizedShortPrefixIsInvalidatedByEveryChange() {
+		assertThat(index.suggest("玉", 10)).extracting(Suggestion::count).containsExactly(1, 1);
+
+		index.index(recipe(4L, "玉子焼き", "・卵 2個", "和食"));
+		assertThat(index.suggest("玉", 10)).containsExactly(
+				new Suggestion("玉子焼き", Kind.TITLE, 2),
+				new Suggestion("玉ねぎ", Kind.INGREDIENT, 1));
+
+		index.remove(1L);
+		assertThat(index.suggest("玉", 10)).containsExactly(new Suggestion("玉子焼き", Kind.TITLE, 2));
+
+		index.clear();
+		assertThat(index.suggest("玉", 10)).isEmpty();
+	}
+
+	@Test
+	void smallerLimitIsServedFromMemoizedResult() {
+		assertThat(index.suggest("豆", 50)).hasSize(2);
+		assertThat(index.suggest("豆", 1)).containsExactly(new Suggestion("豆腐", Kind.INGREDIENT, 2));
+		// 上限より大きい limit やより長い前方一致は覚えた結果を使わずに走査する
+		assertThat(index.suggest("豆", 51)).hasSize(2);
+		assertThat(index.suggest("豆腐ハ", 10)).containsExactly(new Suggestion("豆腐ハンバーグ", Kind.TITLE, 1));
+	}
+
+	@Test
+	void matchesNormalizedPrefixAndShowsLastSavedSpelling() {
+		index.index(recipe(4L, "Pasta", "・ﾍﾞｰｺﾝ 2枚"));
+		assertThat(index.suggest("PA", 10)).containsExactly(new Suggestion("Pasta", Kind.TITLE, 1));
+		assertThat(index.suggest("ベー", 10)).containsExactly(new Suggestion("ﾍﾞｰｺﾝ", Kind.INGREDIENT, 1));
+
+		index.index(recipe(5L, "PASTA", null));
+		assertThat(index.suggest("pa", 10)).containsExactly(new Suggestion("PASTA", Kind.TITLE, 2));
+	}
+
+	@Test
+	void skipsOverlyLongTerms() {
+		index.index(recipe(4L, "長".repeat(101), null));
+		assertThat(index.suggest("長", 10)).isEmpty();
+		assertThat(index.suggest(" ", 10)).isEmpty();
+		assertThat(index.suggest("豆", 0)).isEqualTo(List.of());
+	}
+}
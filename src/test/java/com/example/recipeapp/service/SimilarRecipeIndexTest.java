@@ -0,0 +1,93 @@
+package com.example.recipeapp.service;
+
+import com.example.recipeapp.service.SimilarRecipeIndex.Similar;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static com.example.recipeapp.service.TestRecipes.recipe;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class SimilarRecipeIndexTest {
+
+	private SimilarRecipeIndex index;
+
+	@BeforeEach
+	void setUp() {
+		index = new SimilarRecipeIndex();
+	}
+
+	@Test
+	void identicalFeatureSetsCollideInEveryBand() {
+		index.index(recipe(1L, "カレー", "・玉ねぎ 2個\n・にんじん 1本\n・じゃがいも 2個", "洋食"));
+		// 書き方と分量が違っても、材料名とカテゴリが同じなら署名も同じ
+		index.index(recipe(2L, "ポークカレー", "玉ねぎ1個、にんじん1/2本、じゃがいも1個", "洋食"));
+
+		assertThat(index.similarTo(1L, 10)).containsExactly(new Similar(2L, 1.0));
+		assertThat(index.similarTo(2L, 10)).containsExactly(new Similar(1L, 1.0));
+	}
+
+	@Test
+	void estimateTracksJaccardCoefficient() {
+		index.index(recipe(1L, "a", ingredients(0, 10)));
+		index.index(recipe(2L, "b", ingredients(0, 9)));
+		index.index(recipe(3L, "c", ingredients(0, 7)));
+
+		// Jaccard 係数は 9/10 と 7/10（64 個の MinHash なので推定の誤差は ±0.15 に収まる）
+		assertThat(index.similarTo(1L, 10)).extracting(Similar::recipeId).containsExactly(2L, 3L);
+		assertThat(index.similarTo(1L, 10).get(0).similarity()).isCloseTo(0.9, within(0.15));
+		assertThat(index.similarTo(1L, 10).get(1).similarity()).isCloseTo(0.7, within(0.15));
+	}
+
+	@Test
+	void dissimilarSetsDoNotBecomeCandidates() {
+		index.index(recipe(1L, "a", ingredients(0, 10)));
+		// 共通部分なし、および Jaccard 係数 1/19 のものはどの帯も一致しない
+		index.index(recipe(2L, "b", ingredients(10, 20)));
+		index.index(recipe(3L, "c", ingredients(9, 19)));
+
+		assertThat(index.similarTo(1L, 10)).isEmpty();
+	}
+
+	@Test
+	void categoriesArePartOfTheFeatures() {
+		index.index(recipe(1L, "a", ingredients(0, 9), "洋食"));
+		index.index(recipe(2L, "b", ingredients(0, 9), "和食"));
+
+		// 材料が同じでもカテゴリが違えば Jaccard 係数は 9/11
+		assertThat(index.similarTo(1L, 10)).singleElement()
+				.satisfies(similar -> assertThat(similar.similarity()).isCloseTo(9.0 / 11, within(0.15)).isLessThan(1.0));
+	}
+
+	@Test
+	void capsCandidatesAndBreaksTiesById() {
+		for (long id = 1; id <= 600; id++) {
+			index.index(recipe(id, "同じ", ingredients(0, 5)));
+		}
+		assertThat(index.similarTo(1L, 1000)).hasSize(500);
+		assertThat(index.similarTo(1L, 3)).extracting(Similar::recipeId).containsExactly(2L, 3L, 4L);
+		assertThat(index.similarTo(1L, 0)).isEmpty();
+	}
+
+	@Test
+	void reindexingMovesRecipeToNewBuckets() {
+		index.index(recipe(1L, "a", ingredients(0, 5)));
+		index.index(recipe(2L, "b", ingredients(0, 5)));
+		index.index(recipe(2L, "b", ingredients(5, 10)));
+		assertThat(index.similarTo(1L, 10)).isEmpty();
+
+		// 特徴の無いレシピは索引から外れる
+		index.index(recipe(2L, "b", null));
+		assertThat(index.similarTo(2L, 10)).isEmpty();
+		assertThat(index.similarTo(99L, 10)).isEmpty();
+	}
+
+	// 材料 from〜to-1 を1行ずつ並べた材料欄
+	private static String ingredients(int from, int to) {
+		return IntStream.range(from, to).mapToObj(i -> "・材料" + (char) ('A' + i) + " 1個")
+				.collect(Collectors.joining("\n"));
+	}
+}
@@ -0,0 +1,27 @@
+package com.example.recipeapp.service;
+
+import com.example.recipeapp.model.Recipe;
+
+import java.util.LinkedHashSet;
+import java.util.List;
+
+// 索引やサービスのテストに渡すレシピ（DB には保存しない）
+final class TestRecipes {
+
+	private TestRecipes() {
+	}
+
+	static Recipe recipe(Long id, String title, String ingredients, String... categories) {
+		Recipe recipe = new Recipe();
+		recipe.setId(id);
+		recipe.setTitle(title);
+		recipe.setIngredients(ingredients);
+		recipe.setCategories(new LinkedHashSet<>(List.of(categories)));
+		return recipe;
+	}
+
+	static Recipe favorite(Recipe recipe) {
+		recipe.setFavorite(true);
+		return recipe;
+	}
+}